@@ -0,0 +1,164 @@
+package ru.yandex.practicum.bench;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.repository.fs.FsImageStore;
+import ru.yandex.practicum.repository.jdbc.JdbcCommentRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcImageRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcPostRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcSearchRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcTagRepository;
+import ru.yandex.practicum.service.impl.BlogServiceImpl;
+import ru.yandex.practicum.service.impl.FanOut;
+import ru.yandex.practicum.service.impl.ImageCollector;
+import ru.yandex.practicum.service.impl.ImageUploader;
+import ru.yandex.practicum.service.impl.LikeBuffer;
+import ru.yandex.practicum.service.impl.PostCache;
+import ru.yandex.practicum.service.impl.Thumbnailer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Окружение для бенчмарков: отдельная H2 в памяти со схемой из schema.sql,
+ * хранилище картинок во временном каталоге, репозитории без Spring-контекста и детерминированный генератор данных
+ * (один и тот же seed — одна и та же база, так что прогоны сравнимы).
+ */
+public final class BenchData implements AutoCloseable {
+
+    public static final List<String> TAGS = List.of(
+            "java", "spring", "sql", "h2", "jmh", "web", "cache", "perf", "news", "misc");
+
+    private static final String[] WORDS = (
+            "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor incididunt "
+            + "ut labore et dolore magna aliqua blog post feed comment image like tag page").split(" ");
+
+    public final HikariDataSource dataSource;
+    public final JdbcTemplate jdbc;
+    public final JdbcPostRepository posts;
+    public final JdbcCommentRepository comments;
+    public final JdbcImageRepository images;
+    public final JdbcSearchRepository search;
+    public final JdbcTagRepository tags;
+    public final FsImageStore imageStore;
+    public final ImageCollector imageCollector;
+
+    // Задержка на каждое обращение к БД, с занятым соединением, — как до сервера БД по сети; 0 — без неё
+    public volatile long latencyMicros;
+
+    private BenchData(String dbName) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + dbName + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(16);
+        this.dataSource = new HikariDataSource(config);
+        this.jdbc = new JdbcTemplate(new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                if (latencyMicros > 0) LockSupport.parkNanos(latencyMicros * 1000);
+                return connection;
+            }
+        });
+        this.images = new JdbcImageRepository(jdbc);
+        this.search = new JdbcSearchRepository(jdbc);
+        this.tags = new JdbcTagRepository(jdbc);
+        this.posts = new JdbcPostRepository(jdbc, images, search, tags);
+        this.comments = new JdbcCommentRepository(jdbc, search);
+        try {
+            this.imageStore = new FsImageStore(Files.createTempDirectory("bench-images").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.imageCollector = new ImageCollector(images, imageStore);
+
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        populator.addScript(new ClassPathResource("schema.sql"));
+        populator.execute(dataSource);
+    }
+
+    public static BenchData open(String dbName) {
+        return new BenchData(dbName);
+    }
+
+    /**
+     * Наполняет базу: count постов с 1–3 тегами из {@link #TAGS}, текстом 3–30 абзацев
+     * и 0–5 комментариями. Возвращает id созданных постов.
+     */
+    public List<Long> seed(int count, long seed) {
+        Random random = new Random(seed);
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> tags = new ArrayList<>();
+            int tagCount = 1 + random.nextInt(3);
+            for (int t = 0; t < tagCount; t++) tags.add(TAGS.get(random.nextInt(TAGS.size())));
+
+            long id = posts.create("Post " + i + " " + words(random, 4), tags, text(random, 3 + random.nextInt(28)), null);
+            int commentCount = random.nextInt(6);
+            for (int c = 0; c < commentCount; c++) comments.create(id, words(random, 12));
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    public static String text(Random random, int paragraphs) {
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0; p < paragraphs; p++) {
+            if (p > 0) sb.append('\n');
+            if (random.nextInt(5) == 0) sb.append('\n'); // пустые строки тоже бывают
+            sb.append(words(random, 10 + random.nextInt(60)));
+        }
+        return sb.toString();
+    }
+
+    public static byte[] image(int bytes, long seed) {
+        byte[] data = new byte[bytes];
+        new Random(seed).nextBytes(data);
+        // сигнатура JPEG, чтобы загрузка прошла проверку формата; дальше шум — не декодируется, копии для ленты нет
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        data[2] = (byte) 0xFF;
+        return data;
+    }
+
+    private static String words(Random random, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < n; w++) {
+            if (w > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    // Сервис как в приложении, поверх переданного кэша
+    public BlogServiceImpl service(PostCache cache) {
+        return service(cache, FanOut.on(null, 0));
+    }
+
+    // То же с заданным режимом параллельных запросов
+    public BlogServiceImpl service(PostCache cache, FanOut fanOut) {
+        return new BlogServiceImpl(posts, comments, cache, new LikeBuffer(posts, cache), imageStore, imageCollector,
+                new ImageUploader(imageStore, new Thumbnailer(600, 1200, 50_000_000L), 16L * 1024 * 1024), search, tags, fanOut);
+    }
+
+    public static PostCache cache() {
+        return new PostCache(64L * 1024 * 1024, 60);
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
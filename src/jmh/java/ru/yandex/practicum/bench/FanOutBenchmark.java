@@ -0,0 +1,89 @@
+package ru.yandex.practicum.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.model.FeedView;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.service.impl.BlogServiceImpl;
+import ru.yandex.practicum.service.impl.FanOut;
+import ru.yandex.practicum.service.impl.PostCache;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница ленты (посты + число + теги), поиск и пост с комментариями из 64 потоков
+ * при разных режимах FanOut: sequential — всё в потоке запроса (как было), platform — пул
+ * из 16 потоков, virtual — виртуальный поток на задачу.
+ * Кэш сбрасывается перед каждым вызовом, чтобы мерить запросы к БД.
+ * <p>
+ * H2 в памяти отвечает без ожидания, и параллельные запросы только делят процессор;
+ * latencyMicros добавляет задержку на каждое обращение, как у сервера БД по сети.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({"sequential", "platform", "virtual"})
+    String mode;
+
+    @Param({"0", "1000"})
+    long latencyMicros;
+
+    private BenchData data;
+    private ExecutorService pool;
+    private FanOut fanOut;
+    private PostCache cache;
+    private BlogServiceImpl blog;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.open("fanout-" + mode + "-" + latencyMicros);
+        ids = data.seed(2_000, 42);
+        data.latencyMicros = latencyMicros;
+        fanOut = switch (mode) {
+            case "platform" -> FanOut.on(pool = Executors.newFixedThreadPool(16), 16);
+            case "virtual" -> new FanOut(true, 16);
+            default -> FanOut.on(null, 0);
+        };
+        cache = BenchData.cache();
+        blog = data.service(cache, fanOut);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nFanOut %s: в потоках %d, в потоке запроса %d%n", fanOut.getMode(),
+                fanOut.getForked(), fanOut.getInline());
+        fanOut.destroy();
+        if (pool != null) pool.shutdownNow();
+        data.close();
+    }
+
+    @Benchmark
+    public FeedView feedView() {
+        cache.invalidateFeeds();
+        return blog.findFeedView("spring", 1 + ThreadLocalRandom.current().nextInt(20), 10, 20);
+    }
+
+    @Benchmark
+    public FeedView searchView() {
+        cache.invalidateFeeds();
+        return blog.searchView("lorem dolor", 1 + ThreadLocalRandom.current().nextInt(20), 10, 20);
+    }
+
+    @Benchmark
+    public Optional<Post> getPost() {
+        long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        cache.invalidatePost(id);
+        return blog.getPost(id);
+    }
+}
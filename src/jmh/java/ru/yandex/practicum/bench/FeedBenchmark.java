@@ -0,0 +1,118 @@
+package ru.yandex.practicum.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.service.impl.BlogServiceImpl;
+import ru.yandex.practicum.service.impl.PostCache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лента: запросы репозитория с фильтром по тегу и без, и BlogServiceImpl.findFeed
+ * на разных размерах страницы, составные запросы по тегам — без кэша (каждый вызов идёт в БД) и с ним, и поиск по тексту.
+ * Размер базы: -p posts=10000|100000|1000000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedBenchmark {
+
+    @Param({"10000"})
+    int posts;
+
+    @Param({"10", "50", "100"})
+    int pageSize;
+
+    private BenchData data;
+    private PostCache uncachedCache;
+    private BlogServiceImpl uncached;
+    private BlogServiceImpl cached;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.open("feed" + posts);
+        data.seed(posts, 42);
+        uncachedCache = BenchData.cache();
+        uncached = data.service(uncachedCache);
+        cached = data.service(BenchData.cache());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public List<PostSummary> repositoryFindFeed() {
+        return data.posts.findFeed("", 0, pageSize);
+    }
+
+    @Benchmark
+    public List<PostSummary> repositoryFindFeedByTag() {
+        return data.posts.findFeed("spring", 0, pageSize);
+    }
+
+    @Benchmark
+    public List<PostSummary> repositoryFindFeedByTagDeepPage() {
+        return data.posts.findFeed("spring", 50 * pageSize, pageSize);
+    }
+
+    // составные запросы по тегам (TagQuery): все из, любой из, префикс
+    @Benchmark
+    public List<PostSummary> repositoryFindFeedAllOfTags() {
+        return data.posts.findFeed("java,spring", 0, pageSize);
+    }
+
+    @Benchmark
+    public List<PostSummary> repositoryFindFeedAnyOfTags() {
+        return data.posts.findFeed("java|spring|sql", 0, pageSize);
+    }
+
+    @Benchmark
+    public List<PostSummary> repositoryFindFeedByTagPrefix() {
+        return data.posts.findFeed("s*", 0, pageSize);
+    }
+
+    @Benchmark
+    public int repositoryCountFeed() {
+        return data.posts.countFeed("");
+    }
+
+    @Benchmark
+    public int repositoryCountFeedByTag() {
+        return data.posts.countFeed("spring");
+    }
+
+    @Benchmark
+    public List<PostSummary> serviceFindFeedUncached() {
+        uncachedCache.invalidateAll(); // каждый вызов — промах, идём в БД
+        return uncached.findFeed("", 1, pageSize);
+    }
+
+    @Benchmark
+    public List<PostSummary> serviceFindFeedByTagUncached() {
+        uncachedCache.invalidateAll();
+        return uncached.findFeed("java", 1, pageSize);
+    }
+
+    @Benchmark
+    public List<PostSummary> serviceFindFeedCached() {
+        return cached.findFeed("", 1, pageSize);
+    }
+
+    // словарь BenchData маленький — эти слова есть почти в каждом посте, худший случай для индекса
+    @Benchmark
+    public List<PostSummary> serviceSearchCommonWords() {
+        return uncached.searchPosts("magna tempor", 1, pageSize);
+    }
+
+    // номер из заголовка "Post N" — редкое слово, короткий список постов
+    @Benchmark
+    public List<PostSummary> serviceSearchRareWord() {
+        return uncached.searchPosts(String.valueOf(posts / 2), 1, pageSize);
+    }
+}
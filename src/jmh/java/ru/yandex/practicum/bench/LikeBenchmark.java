@@ -0,0 +1,46 @@
+package ru.yandex.practicum.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.service.impl.BlogServiceImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайки одного «вирусного» поста из 8 потоков: прямой UPDATE на каждый клик
+ * против буфера в BlogServiceImpl, который пишет в БД пачками.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class LikeBenchmark {
+
+    private BenchData data;
+    private BlogServiceImpl service;
+    private long postId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.open("likes");
+        postId = data.seed(100, 3).get(0);
+        service = data.service(BenchData.cache());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public void repositoryLike() {
+        data.posts.like(postId, true);
+    }
+
+    @Benchmark
+    public void serviceLike() {
+        service.likePost(postId, true);
+    }
+}
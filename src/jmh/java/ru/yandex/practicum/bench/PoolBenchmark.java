@@ -0,0 +1,60 @@
+package ru.yandex.practicum.bench;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.configuration.DataSourceConfiguration;
+import ru.yandex.practicum.metrics.PoolMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Короткие запросы из 16 потоков: driverManager — соединение на каждый запрос
+ * (DriverManagerDataSource), pool — HikariCP из DataSourceConfiguration на 8 соединений.
+ * После прогона печатает, сколько раз пул не дождался соединения: должно быть 0.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class PoolBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:poolbench;DB_CLOSE_DELAY=-1";
+
+    @Param({"driverManager", "pool"})
+    String dataSource;
+
+    private PoolMetrics metrics;
+    private HikariDataSource pooled;
+    private JdbcTemplate jdbc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (dataSource.equals("pool")) {
+            metrics = new PoolMetrics();
+            pooled = (HikariDataSource) new DataSourceConfiguration()
+                    .dataSource(URL, "sa", "", 2, 8, 3000, 1000, metrics);
+            jdbc = new JdbcTemplate(pooled);
+        } else {
+            jdbc = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        }
+        jdbc.queryForObject("SELECT 1", Integer.class); // прогрев
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pooled == null) return;
+        System.out.printf("pool: acquire avg=%d us max=%d us, timeouts=%d%n",
+                metrics.getAcquireAvgMicros(), metrics.getAcquireMaxMicros(), metrics.getTimeouts());
+        pooled.close();
+    }
+
+    @Benchmark
+    public Integer query() {
+        return jdbc.queryForObject("SELECT 1", Integer.class);
+    }
+}
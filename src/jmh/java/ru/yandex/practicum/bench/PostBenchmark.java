@@ -0,0 +1,70 @@
+package ru.yandex.practicum.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.model.ImageUpload;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.service.impl.BlogServiceImpl;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница поста и картинка: findById у поста с большой картинкой (картинка не должна
+ * влиять на время) и отдача картинки из ImageStore потоком.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostBenchmark {
+
+    @Param({"5242880"})
+    int imageBytes;
+
+    private BenchData data;
+    private BlogServiceImpl blog;
+    private long postId;
+    private ImageMeta image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchData.open("post" + imageBytes);
+        data.seed(1000, 7);
+        blog = data.service(BenchData.cache());
+        postId = blog.createPost("Big picture", List.of("img"), BenchData.text(new Random(1), 30),
+                ImageUpload.of(BenchData.image(imageBytes, 1)));
+        image = blog.findImageMeta(postId).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public Optional<Post> findById() {
+        return data.posts.findById(postId);
+    }
+
+    @Benchmark
+    public boolean writeImage(Blackhole bh) {
+        return blog.writeImage(image, new OutputStream() {
+            @Override
+            public void write(int b) {
+                bh.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bh.consume(len);
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+import ru.yandex.practicum.configuration.ThymeleafConfiguration;
+import ru.yandex.practicum.controller.FeedCardCache;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.model.PostText;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Карточки одной страницы ленты: каждый раз через шаблон против готового HTML из FeedCardCache.
+ * Посты на странице — новые объекты с теми же данными, как после чтения из БД.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"10", "100"})
+    int pageSize;
+
+    @Param({"false", "true"})
+    boolean cached;
+
+    private FeedCardCache cards;
+    private WebContext page;
+    private List<PostSummary> posts;
+
+    @Setup
+    public void setUp() {
+        var config = new ThymeleafConfiguration(false);
+        SpringTemplateEngine engine = config.templateEngine(config.templateResolver(0), 200);
+        cards = new FeedCardCache(engine, false, cached ? 5000 : 0);
+
+        var servletContext = new MockServletContext();
+        var exchange = JakartaServletWebApplication.buildApplication(servletContext)
+                .buildExchange(new MockHttpServletRequest(servletContext), new MockHttpServletResponse());
+        page = new WebContext(exchange, Locale.getDefault());
+
+        Random random = new Random(7);
+        posts = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            posts.add(PostSummary.builder()
+                    .id(id)
+                    .title("Пост " + id)
+                    .preview(PostText.preview(BenchData.text(random, 5), PostText.PREVIEW_LINES))
+                    .tags(new ArrayList<>(BenchData.TAGS.subList(0, 3)))
+                    .likesCount(random.nextInt(100))
+                    .commentsCount(random.nextInt(20))
+                    .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(id))
+                    .hasImage(id % 2 == 0)
+                    .build());
+        }
+        feed(); // кэш заполнен, как после первого показа страницы
+    }
+
+    @Benchmark
+    public int feed() {
+        int length = 0;
+        for (PostSummary p : posts) length += cards.html(p.toBuilder().build(), page).length();
+        return length;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.model.Post;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Помощники Post, которые шаблоны вызывают на каждом рендере: превью для ленты и абзацы для страницы поста.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+    @Param({"5", "200"})
+    int paragraphs;
+
+    private Post post;
+
+    @Setup
+    public void setUp() {
+        post = Post.builder().id(1L).title("T").text(BenchData.text(new Random(11), paragraphs)).build();
+    }
+
+    @Benchmark
+    public String textPreview() {
+        return post.getTextPreview();
+    }
+
+    @Benchmark
+    public List<String> textParts() {
+        return post.getTextParts();
+    }
+}
@@ -5,15 +5,30 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.metrics.HttpMetrics;
 
 @Configuration
 @EnableWebMvc
 @ComponentScan(basePackages = {"ru.yandex.practicum"})
 @PropertySource("classpath:application.properties")
-public class WebConfiguration {
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final HttpMetrics httpMetrics;
+
+    public WebConfiguration(HttpMetrics httpMetrics) {
+        this.httpMetrics = httpMetrics;
+    }
+
     @Bean //без него картинки не грузятся
     public org.springframework.web.multipart.MultipartResolver multipartResolver() {
         return new org.springframework.web.multipart.support.StandardServletMultipartResolver();
     }
 
-}
\ No newline at end of file
+    // время и число SQL-выражений каждого запроса — для /metrics
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(httpMetrics);
+    }
+}
@@ -1,36 +1,60 @@
 package ru.yandex.practicum.configuration;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.h2.Driver;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableMBeanExport;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jmx.support.RegistrationPolicy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ru.yandex.practicum.metrics.PoolMetrics;
 
 import javax.sql.DataSource;
 
 @Configuration
+@EnableMBeanExport(registration = RegistrationPolicy.REPLACE_EXISTING)
+@EnableTransactionManagement(proxyTargetClass = true)
 public class DataSourceConfiguration {
 
-    // Настройка DataSource — компонент, отвечающий за соединение с базой данных
-    @Bean
+    // Настройка DataSource — пул соединений, чтобы не открывать новое соединение на каждый запрос
+    @Bean(destroyMethod = "close")
     public DataSource dataSource(
             // Настройки соединения возьмём из Environment
             @Value("${spring.datasource.url}") String url,
             @Value("${spring.datasource.username}") String username,
-            @Value("${spring.datasource.password}") String password
+            @Value("${spring.datasource.password}") String password,
+            // Размеры пула, таймаут ожидания соединения и проверки соединения
+            @Value("${spring.datasource.pool.min-idle:2}") int minIdle,
+            @Value("${spring.datasource.pool.max-size:10}") int maxSize,
+            @Value("${spring.datasource.pool.connection-timeout-ms:3000}") long connectionTimeoutMs,
+            @Value("${spring.datasource.pool.validation-timeout-ms:1000}") long validationTimeoutMs,
+            PoolMetrics poolMetrics
     ) {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(Driver.class.getName());
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("myblog");
+        config.setDriverClassName(Driver.class.getName());
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMinimumIdle(minIdle);
+        config.setMaximumPoolSize(maxSize);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setValidationTimeout(validationTimeoutMs); // проверка через Connection.isValid()
+        config.setMetricsTrackerFactory(poolMetrics);
 
-        return dataSource;
+        return new HikariDataSource(config);
     }
 
     // JdbcTemplate — компонент для выполнения запросов
@@ -39,8 +63,17 @@ public class DataSourceConfiguration {
         return new JdbcTemplate(dataSource);
     }
 
-    // После инициализации контекста выполняем наполнение схемы базы данных
+    // Транзакции для @Transactional (например, пост + его строки в post_tags)
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    // После инициализации контекста выполняем наполнение схемы базы данных — раньше других слушателей
+    // (например, переноса картинок), которым уже нужны таблицы
     @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
     public void populate(ContextRefreshedEvent event) {
         DataSource dataSource = event.getApplicationContext().getBean(DataSource.class);
 
@@ -49,4 +82,4 @@ public class DataSourceConfiguration {
         populator.execute(dataSource);
     }
 
-}
\ No newline at end of file
+}
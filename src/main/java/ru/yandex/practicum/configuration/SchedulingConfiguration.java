@@ -0,0 +1,10 @@
+package ru.yandex.practicum.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Фоновые задачи (@Scheduled), например сброс накопленных лайков в БД
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
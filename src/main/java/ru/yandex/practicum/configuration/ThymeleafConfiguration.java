@@ -1,30 +1,49 @@
 package ru.yandex.practicum.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.ViewResolver;
+import org.thymeleaf.cache.StandardCacheManager;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import org.thymeleaf.spring6.view.ThymeleafViewResolver;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 
+/**
+ * Шаблоны разбираются один раз и дальше берутся из кэша движка (не больше cache-max-size шаблонов,
+ * при cache-ttl-seconds > 0 — перечитываются по истечении срока).
+ * В dev-mode кэш выключен: правка шаблона видна со следующего запроса, кэш карточек ленты тоже не используется.
+ */
 @Configuration
 public class ThymeleafConfiguration {
 
+    private final boolean devMode;
+
+    public ThymeleafConfiguration(@Value("${blog.templates.dev-mode:false}") boolean devMode) {
+        this.devMode = devMode;
+    }
+
     @Bean
-    public ITemplateResolver templateResolver() {
+    public ITemplateResolver templateResolver(@Value("${blog.templates.cache-ttl-seconds:0}") long cacheTtlSeconds) {
         ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
         resolver.setPrefix("/templates/"); // Директория для хранения HTML-шаблонов
         resolver.setSuffix(".html");       // Суффикс шаблонов
         resolver.setTemplateMode("HTML");  // Режим шаблонов
         resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(!devMode);
+        resolver.setCacheTTLMs(cacheTtlSeconds > 0 ? cacheTtlSeconds * 1000 : null); // null — бессрочно
         return resolver;
     }
 
     @Bean
-    public SpringTemplateEngine templateEngine(ITemplateResolver templateResolver) {
+    public SpringTemplateEngine templateEngine(ITemplateResolver templateResolver,
+                                               @Value("${blog.templates.cache-max-size:200}") int cacheMaxSize) {
+        StandardCacheManager cache = new StandardCacheManager();
+        cache.setTemplateCacheMaxSize(devMode ? 0 : cacheMaxSize);
         SpringTemplateEngine engine = new SpringTemplateEngine();
         engine.setTemplateResolver(templateResolver);
+        engine.setCacheManager(cache);
         return engine;
     }
 
@@ -33,7 +52,9 @@ public class ThymeleafConfiguration {
         ThymeleafViewResolver resolver = new ThymeleafViewResolver();
         resolver.setTemplateEngine(templateEngine);
         resolver.setCharacterEncoding("UTF-8");
+        resolver.setCache(!devMode);
+        // страница пишется в ответ по ходу отрисовки, а не собирается целиком (нужно для потоковой ленты)
+        resolver.setProducePartialOutputWhileProcessing(true);
         return resolver;
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IWebContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import ru.yandex.practicum.model.PostSummary;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Готовый HTML карточек ленты (фрагмент "card" из feed-card.html): страница ленты собирается
+ * из кэша, а шаблон отрабатывает только для постов, которые поменялись.
+ * <p>
+ * Ключ — id поста, версия — сами данные карточки: запись хранит PostSummary, по которому отрисована,
+ * и годится, только пока он равен текущему. Так правка поста, комментарий или лайк (в том числе
+ * ещё не записанный из LikeBuffer) сразу дают новую версию, и устаревшая карточка не покажется,
+ * даже если её положил запрос, прочитавший пост до записи; она просто будет перерисована и заменена.
+ * <p>
+ * Карточки с фрагментом найденного текста зависят от запроса и не кэшируются.
+ * Ссылки в карточке от запроса не зависят: context path у приложения один.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=FeedCardCache")
+public class FeedCardCache {
+
+    private static final String TEMPLATE = "feed-card";
+    private static final Set<String> FRAGMENT = Set.of("card");
+
+    private record Card(PostSummary source, String html) {
+    }
+
+    private final SpringTemplateEngine templates;
+    private final boolean enabled;
+    private final Cache<Long, Card> cards;
+    // не stats() кэша: там устаревшая карточка считалась бы попаданием
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FeedCardCache(SpringTemplateEngine templates,
+                         @Value("${blog.templates.dev-mode:false}") boolean devMode,
+                         @Value("${blog.templates.card-cache-size:5000}") long maxSize) {
+        this.templates = templates;
+        this.enabled = !devMode && maxSize > 0;
+        this.cards = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxSize, 0))
+                .build();
+    }
+
+    // Вызывается из posts.html: ${@feedCardCache.html(post, #ctx)}
+    public String html(PostSummary post, IContext page) {
+        if (!enabled || post.getId() == null || post.getSnippet() != null) return render(post, page);
+        Card card = cards.getIfPresent(post.getId());
+        if (card != null && card.source().equals(post)) {
+            hits.increment();
+            return card.html();
+        }
+        misses.increment();
+        String html = render(post, page);
+        cards.put(post.getId(), new Card(post, html));
+        return html;
+    }
+
+    private String render(PostSummary post, IContext page) {
+        // ссылкам @{...} нужен запрос, поэтому карточка рисуется в контексте того же запроса
+        if (!(page instanceof IWebContext web)) {
+            throw new IllegalStateException("Карточка ленты рисуется только внутри веб-запроса");
+        }
+        var context = new WebContext(web.getExchange(), page.getLocale(), Map.of("post", post));
+        return templates.process(TEMPLATE, FRAGMENT, context);
+    }
+
+    @ManagedOperation(description = "Сбросить кэш карточек")
+    public void invalidateAll() {
+        cards.invalidateAll();
+    }
+
+    @ManagedAttribute(description = "Карточки, взятые из кэша")
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @ManagedAttribute(description = "Карточки, отрисованные заново (нет в кэше или пост изменился)")
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @ManagedAttribute(description = "Карточек в кэше")
+    public long getSize() {
+        return cards.estimatedSize();
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import ru.yandex.practicum.model.PostSummary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Посты, которые шаблон обходит потоком: перед каждой порцией (её чтение из БД начинается в hasNext)
+ * уже отрисованное отправляется клиенту. Так шапка страницы и первые посты приходят,
+ * пока следующие ещё читаются.
+ */
+final class FlushingPosts implements Iterable<PostSummary> {
+
+    private final Iterable<PostSummary> posts;
+    private final int chunkSize;
+    private final HttpServletResponse response;
+
+    FlushingPosts(Iterable<PostSummary> posts, int chunkSize, HttpServletResponse response) {
+        this.posts = posts;
+        this.chunkSize = chunkSize;
+        this.response = response;
+    }
+
+    @Override
+    public Iterator<PostSummary> iterator() {
+        Iterator<PostSummary> it = posts.iterator();
+        return new Iterator<>() {
+            private int count;
+            private int flushedAt = -1;
+
+            @Override
+            public boolean hasNext() {
+                if (count % chunkSize == 0 && flushedAt != count) {
+                    flushedAt = count;
+                    flush();
+                }
+                return it.hasNext();
+            }
+
+            @Override
+            public PostSummary next() {
+                PostSummary post = it.next();
+                count++;
+                return post;
+            }
+        };
+    }
+
+    private void flush() {
+        try {
+            response.flushBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // клиент ушёл — дальше читать незачем
+        }
+    }
+}
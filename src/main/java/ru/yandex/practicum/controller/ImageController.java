@@ -1,30 +1,57 @@
 package ru.yandex.practicum.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.service.BlogService;
 
+import java.io.IOException;
+import java.time.Duration;
+
 @Controller
 @RequestMapping("/images")
 public class ImageController {
 
     private final BlogService blog;
+    private final CacheControl cacheControl;
 
-    public ImageController(BlogService blog) {
+    public ImageController(BlogService blog,
+                           @Value("${blog.images.cache-max-age-seconds:60}") long maxAgeSeconds) {
         this.blog = blog;
+        // картинка по id может поменяться при редактировании поста, поэтому после max-age браузер
+        // переспрашивает с If-None-Match и обычно получает дешёвый 304
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic().mustRevalidate();
     }
 
+    // ?size=feed — уменьшенная копия для ленты, без параметра — оригинал
     @GetMapping("/{postId}")
-    @ResponseBody
-    public ResponseEntity<byte[]> image(@PathVariable("postId") long postId) {
-        return blog.loadImage(postId)
-                .map(bytes -> ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG_VALUE)
-                        .body(bytes))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public void image(@PathVariable("postId") long postId,
+                      @RequestParam(value = "size", required = false) String size,
+                      ServletWebRequest request,
+                      HttpServletResponse response) throws IOException {
+        var meta = ("feed".equals(size) ? blog.findThumbnailMeta(postId) : blog.findImageMeta(postId)).orElse(null);
+        if (meta == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        // ставит ETag/Last-Modified и при совпадении отвечает 304 — файл при этом не читаем
+        if (request.checkNotModified(meta.etag(), meta.lastModifiedMillis())) {
+            return;
+        }
+
+        // тип определён по сигнатуре при загрузке; без него это не картинка (остатки старых данных)
+        response.setContentType(meta.getContentType() != null ? meta.getContentType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentLengthLong(meta.getSize());
+        blog.writeImage(meta, response.getOutputStream());
     }
 
 }
@@ -0,0 +1,196 @@
+package ru.yandex.practicum.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимум JSON для наших ответов: объекты из строк и чисел пишутся руками,
+ * ради них тянуть в war Jackson не стоит. Тела запросов API читает {@link #parseObject(String)}.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    // строка в кавычках с экранированием по RFC 8259
+    static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    // управляющие символы и разделители строк JS — кодами
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Объект JSON → Map: строки, числа (Long или Double), true/false, null, списки и вложенные объекты.
+     * Некорректный JSON — IllegalArgumentException.
+     */
+    static Map<String, Object> parseObject(String json) {
+        Parser p = new Parser(json);
+        p.skipSpaces();
+        if (!p.peek('{')) throw p.error("ожидался объект");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = (Map<String, Object>) p.value(0);
+        p.skipSpaces();
+        if (p.pos < json.length()) throw p.error("лишние символы после объекта");
+        return result;
+    }
+
+    private static final class Parser {
+        private static final int MAX_DEPTH = 32;
+
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Object value(int depth) {
+            if (depth > MAX_DEPTH) throw error("слишком глубокая вложенность");
+            skipSpaces();
+            if (pos >= s.length()) throw error("неожиданный конец");
+            char c = s.charAt(pos);
+            return switch (c) {
+                case '{' -> object(depth);
+                case '[' -> array(depth);
+                case '"' -> string();
+                case 't' -> literal("true", Boolean.TRUE);
+                case 'f' -> literal("false", Boolean.FALSE);
+                case 'n' -> literal("null", null);
+                default -> number();
+            };
+        }
+
+        private Map<String, Object> object(int depth) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipSpaces();
+            if (peek('}')) {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipSpaces();
+                if (!peek('"')) throw error("ожидалось имя поля");
+                String key = string();
+                skipSpaces();
+                expect(':');
+                map.put(key, value(depth + 1));
+                skipSpaces();
+                if (peek(',')) {
+                    pos++;
+                    continue;
+                }
+                expect('}');
+                return map;
+            }
+        }
+
+        private List<Object> array(int depth) {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipSpaces();
+            if (peek(']')) {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(value(depth + 1));
+                skipSpaces();
+                if (peek(',')) {
+                    pos++;
+                    continue;
+                }
+                expect(']');
+                return list;
+            }
+        }
+
+        private String string() {
+            pos++; // открывающая кавычка
+            StringBuilder sb = new StringBuilder();
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    if (c < 0x20) throw error("управляющий символ в строке");
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= s.length()) break;
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) throw error("обрезанный \\u");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("некорректный \\u");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("неизвестная escape-последовательность");
+                }
+            }
+            throw error("незакрытая строка");
+        }
+
+        private Object number() {
+            int start = pos;
+            while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) pos++;
+            String n = s.substring(start, pos);
+            try {
+                if (n.contains(".") || n.contains("e") || n.contains("E")) return Double.parseDouble(n);
+                return Long.parseLong(n);
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("ожидалось значение");
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!s.startsWith(word, pos)) throw error("ожидалось значение");
+            pos += word.length();
+            return value;
+        }
+
+        void skipSpaces() {
+            while (pos < s.length() && " \t\r\n".indexOf(s.charAt(pos)) >= 0) pos++;
+        }
+
+        boolean peek(char c) {
+            return pos < s.length() && s.charAt(pos) == c;
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) throw error("ожидался '" + c + "'");
+            pos++;
+        }
+
+        IllegalArgumentException error(String what) {
+            return new IllegalArgumentException("Некорректный JSON: " + what + " (позиция " + pos + ")");
+        }
+    }
+}
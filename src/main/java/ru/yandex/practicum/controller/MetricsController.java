@@ -0,0 +1,29 @@
+package ru.yandex.practicum.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import ru.yandex.practicum.metrics.MetricsSource;
+import ru.yandex.practicum.metrics.PrometheusText;
+
+import java.io.IOException;
+import java.util.List;
+
+@Controller
+public class MetricsController {
+
+    private final List<MetricsSource> sources;
+
+    public MetricsController(List<MetricsSource> sources) {
+        this.sources = sources;
+    }
+
+    // Метрики в текстовом формате Prometheus: HTTP, сервис, SQL, пул соединений
+    @GetMapping("/metrics")
+    public void metrics(HttpServletResponse response) throws IOException {
+        PrometheusText out = new PrometheusText();
+        sources.forEach(source -> source.writeTo(out));
+        response.setContentType(PrometheusText.CONTENT_TYPE);
+        response.getWriter().write(out.toString());
+    }
+}
@@ -0,0 +1,275 @@
+package ru.yandex.practicum.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.FeedPage;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostField;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.model.TagQuery;
+import ru.yandex.practicum.service.BlogService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON API поверх BlogService для мобильных клиентов.
+ * <ul>
+ *     <li>лента — курсором: в ответе next, его передают в ?after=; ?search= — как в HTML-ленте;</li>
+ *     <li>?fields=id,title,likesCount — только эти поля; в ленте по ним выбираются колонки;</li>
+ *     <li>GET-ответы с ETag (SHA-256 тела): повторный запрос с If-None-Match получает 304 без тела;</li>
+ *     <li>ответы от compress-min-bytes сжимаются gzip, если клиент его принимает;</li>
+ *     <li>тела запросов — JSON-объекты; картинки загружаются формой /posts, в JSON — только ссылка.</li>
+ * </ul>
+ */
+@Controller
+@RequestMapping("/api/posts")
+public class PostApiController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String JSON = MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8";
+
+    private final BlogService blog;
+    private final int compressMinBytes;
+
+    public PostApiController(BlogService blog,
+                             @Value("${blog.api.compress-min-bytes:1024}") int compressMinBytes) {
+        this.blog = blog;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    // Лента: {"posts":[...],"next":"токен"|null}
+    @GetMapping
+    public void feed(@RequestParam(value = "search", defaultValue = "") String search,
+                     @RequestParam(value = "after", required = false) String after,
+                     @RequestParam(value = "size", defaultValue = "10") int size,
+                     @RequestParam(value = "fields", required = false) String fields,
+                     ServletWebRequest request, HttpServletResponse response) throws IOException {
+        Set<PostField> selected = PostField.parse(fields, PostField.FEED);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        FeedCursor cursor = FeedCursor.decode(after).orElse(null);
+        FeedPage page = blog.findFeedAfter(TagQuery.parse(search.trim()), cursor, pageSize, selected);
+
+        String contextPath = request.getRequest().getContextPath();
+        StringBuilder out = new StringBuilder("{\"posts\":[");
+        List<PostSummary> posts = page.getPosts();
+        for (int i = 0; i < posts.size(); i++) {
+            if (i > 0) out.append(',');
+            PostJson.summary(out, posts.get(i), selected, contextPath);
+        }
+        out.append("],\"next\":")
+                .append(Json.quote(page.getNextCursor() == null ? null : page.getNextCursor().encode()))
+                .append('}');
+        send(request, response, HttpServletResponse.SC_OK, out);
+    }
+
+    @GetMapping("/{id}")
+    public void post(@PathVariable("id") long id,
+                     @RequestParam(value = "fields", required = false) String fields,
+                     ServletWebRequest request, HttpServletResponse response) throws IOException {
+        Set<PostField> selected = PostField.parse(fields, PostField.ALL);
+        Optional<Post> post = blog.getPost(id);
+        if (post.isEmpty()) {
+            notFound(request, response);
+            return;
+        }
+        // признак картинки — отдельным запросом и только если ссылка на неё нужна
+        boolean hasImage = selected.contains(PostField.IMAGE) && blog.findImageMeta(id).isPresent();
+        StringBuilder out = new StringBuilder();
+        PostJson.post(out, post.get(), hasImage, selected, request.getRequest().getContextPath());
+        send(request, response, HttpServletResponse.SC_OK, out);
+    }
+
+    @GetMapping("/{id}/comments")
+    public void comments(@PathVariable("id") long id,
+                         ServletWebRequest request, HttpServletResponse response) throws IOException {
+        Optional<Post> post = blog.getPost(id);
+        if (post.isEmpty()) {
+            notFound(request, response);
+            return;
+        }
+        StringBuilder out = new StringBuilder();
+        PostJson.comments(out, post.get().getComments());
+        send(request, response, HttpServletResponse.SC_OK, out);
+    }
+
+    // {"title":"...","tags":["a","b"],"text":"..."} → 201, Location и {"id":...}
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void create(@RequestBody String body,
+                       ServletWebRequest request, HttpServletResponse response) throws IOException {
+        Map<String, Object> json = Json.parseObject(body);
+        long id = blog.createPost(requiredString(json, "title"), tags(json), requiredString(json, "text"), null);
+        response.setHeader(HttpHeaders.LOCATION, request.getRequest().getContextPath() + "/api/posts/" + id);
+        send(request, response, HttpServletResponse.SC_CREATED, new StringBuilder("{\"id\":" + id + "}"));
+    }
+
+    // те же поля; картинка остаётся прежней
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void update(@PathVariable("id") long id, @RequestBody String body,
+                       ServletWebRequest request, HttpServletResponse response) throws IOException {
+        Map<String, Object> json = Json.parseObject(body);
+        if (blog.getPost(id).isEmpty()) {
+            notFound(request, response);
+            return;
+        }
+        blog.updatePost(id, requiredString(json, "title"), tags(json), requiredString(json, "text"), null);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable("id") long id, HttpServletResponse response) {
+        blog.deletePost(id);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    // ?like=false — убрать лайк; в ответе новое число лайков
+    @PostMapping("/{id}/like")
+    public void like(@PathVariable("id") long id,
+                     @RequestParam(value = "like", defaultValue = "true") boolean like,
+                     ServletWebRequest request, HttpServletResponse response) throws IOException {
+        if (blog.getPost(id).isEmpty()) {
+            notFound(request, response);
+            return;
+        }
+        blog.likePost(id, like);
+        int likes = blog.getPost(id).map(Post::getLikesCount).orElse(0);
+        send(request, response, HttpServletResponse.SC_OK,
+                new StringBuilder("{\"id\":" + id + ",\"likesCount\":" + likes + "}"));
+    }
+
+    // {"text":"..."} → 201 и {"id":...}
+    @PostMapping(value = "/{id}/comments", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void addComment(@PathVariable("id") long id, @RequestBody String body,
+                           ServletWebRequest request, HttpServletResponse response) throws IOException {
+        String text = requiredString(Json.parseObject(body), "text");
+        if (blog.getPost(id).isEmpty()) {
+            notFound(request, response);
+            return;
+        }
+        long commentId = blog.addComment(id, text);
+        send(request, response, HttpServletResponse.SC_CREATED, new StringBuilder("{\"id\":" + commentId + "}"));
+    }
+
+    @PutMapping(value = "/{id}/comments/{commentId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void updateComment(@PathVariable("id") long id, @PathVariable("commentId") long commentId,
+                              @RequestBody String body,
+                              ServletWebRequest request, HttpServletResponse response) throws IOException {
+        String text = requiredString(Json.parseObject(body), "text");
+        boolean exists = blog.getPost(id)
+                .map(p -> p.getComments().stream().map(Comment::getId).anyMatch(c -> c == commentId))
+                .orElse(false);
+        if (!exists) {
+            notFound(request, response);
+            return;
+        }
+        blog.updateComment(id, commentId, text);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    @DeleteMapping("/{id}/comments/{commentId}")
+    public void deleteComment(@PathVariable("id") long id, @PathVariable("commentId") long commentId,
+                              HttpServletResponse response) {
+        blog.deleteComment(id, commentId);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    // неизвестное поле в ?fields=, битый JSON, нет обязательного поля, неверный запрос по тегам — 400 с причиной
+    @ExceptionHandler(IllegalArgumentException.class)
+    public void badRequest(IllegalArgumentException e, ServletWebRequest request,
+                           HttpServletResponse response) throws IOException {
+        send(request, response, HttpServletResponse.SC_BAD_REQUEST,
+                new StringBuilder("{\"error\":" + Json.quote(e.getMessage()) + "}"));
+    }
+
+    private void notFound(ServletWebRequest request, HttpServletResponse response) throws IOException {
+        send(request, response, HttpServletResponse.SC_NOT_FOUND, new StringBuilder("{\"error\":\"Пост не найден\"}"));
+    }
+
+    private void send(ServletWebRequest request, HttpServletResponse response, int status,
+                      StringBuilder json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        boolean gzip = body.length >= compressMinBytes && acceptsGzip(request.getRequest());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (status == HttpServletResponse.SC_OK && "GET".equals(request.getRequest().getMethod())) {
+            // у сжатого ответа другие байты — и другой ETag
+            String etag = "\"" + sha256(body) + (gzip ? "-gzip" : "") + "\"";
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            if (request.checkNotModified(etag)) return;
+        }
+
+        if (gzip) {
+            ByteArrayOutputStream packed = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (OutputStream out = new GZIPOutputStream(packed)) {
+                out.write(body);
+            }
+            body = packed.toByteArray();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(status);
+        response.setContentType(JSON);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // gzip есть в Accept-Encoding и не выключен через q=0
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (header == null) return false;
+        for (String part : header.split(",")) {
+            String[] p = part.trim().split(";");
+            if (!p[0].trim().equalsIgnoreCase("gzip") && !p[0].trim().equals("*")) continue;
+            return Arrays.stream(p).skip(1).map(String::trim)
+                    .noneMatch(q -> q.matches("q\\s*=\\s*0(\\.0*)?"));
+        }
+        return false;
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(digest, 0, 16); // 128 бит для ETag хватает
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String requiredString(Map<String, Object> json, String name) {
+        if (!(json.get(name) instanceof String value) || value.isBlank()) {
+            throw new IllegalArgumentException("Нужно строковое поле " + name);
+        }
+        return value;
+    }
+
+    // ["java","spring"] или "java, spring", как в форме
+    private static List<String> tags(Map<String, Object> json) {
+        Object tags = json.get("tags");
+        if (tags == null) return List.of();
+        if (tags instanceof String csv) {
+            return Arrays.stream(csv.split("[,\\s]+")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        }
+        if (tags instanceof List<?> list && list.stream().allMatch(t -> t instanceof String)) {
+            return list.stream().map(t -> ((String) t).trim()).filter(s -> !s.isEmpty()).toList();
+        }
+        throw new IllegalArgumentException("tags — список строк или строка через запятую");
+    }
+}
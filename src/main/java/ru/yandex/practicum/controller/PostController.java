@@ -1,11 +1,20 @@
 package ru.yandex.practicum.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.FeedPage;
+import ru.yandex.practicum.model.FeedView;
+import ru.yandex.practicum.model.ImageUpload;
+import ru.yandex.practicum.model.InvalidTagQueryException;
 import ru.yandex.practicum.model.Paging;
 import ru.yandex.practicum.service.BlogService;
+import ru.yandex.practicum.service.InvalidImageException;
 
 import java.util.List;
 
@@ -13,26 +22,77 @@ import java.util.List;
 @RequestMapping("/posts")
 public class PostController {
 
+    private static final int POPULAR_TAGS = 20;
+    private static final int STREAM_CHUNK = 20;
+
     private final BlogService blog;
+    private final int streamPageSize;
 
-    public PostController(BlogService blog) {
+    public PostController(BlogService blog, @Value("${blog.feed.stream-page-size:50}") int streamPageSize) {
         this.blog = blog;
+        this.streamPageSize = streamPageSize;
     }
 
     // Лента
     @GetMapping
     public String feed(@RequestParam(value = "search", defaultValue = "") String search,
+                       @RequestParam(value = "q", defaultValue = "") String q,
                        @RequestParam(value = "pageNumber", defaultValue = "1") int pageNumber,
                        @RequestParam(value = "pageSize", defaultValue = "10") int pageSize,
-                       Model model) {
+                       @RequestParam(value = "after", required = false) String after,
+                       @RequestParam(value = "before", required = false) String before,
+                       Model model, HttpServletResponse response) {
 
         String tag = search == null ? "" : search.trim();
-        var posts = blog.findFeed(tag, pageNumber, pageSize);     // ← передаём 1-based
-        int total = blog.countFeed(tag);
+        model.addAttribute("search", tag);                        // ← пустая строка по умолчанию
+        model.addAttribute("q", q.trim());
+
+        // Поиск по тексту: страницы по номеру, порядок — по весу совпадений, а не по дате
+        if (!q.isBlank()) {
+            FeedView view = blog.searchView(q, pageNumber, pageSize, POPULAR_TAGS);
+            model.addAttribute("posts", view.getPosts());
+            model.addAttribute("paging", new Paging(pageNumber, pageSize, view.getTotal()));
+            model.addAttribute("popularTags", view.getPopularTags());
+            return "posts";
+        }
+
+        // Режим курсора: ?after=/?before= — непрозрачные токены, без OFFSET и без COUNT(*)
+        var cursor = FeedCursor.decode(after).map(c -> blog.findFeedAfter(tag, c, pageSize))
+                .or(() -> FeedCursor.decode(before).map(c -> blog.findFeedBefore(tag, c, pageSize)));
+        if (cursor.isPresent()) {
+            FeedPage page = cursor.get();
+            model.addAttribute("posts", page.getPosts());
+            model.addAttribute("popularTags", blog.findPopularTags(POPULAR_TAGS)); // готовые счётчики, без подсчёта по постам
+            model.addAttribute("paging", new Paging(page.getPageNumber(), pageSize, -1,
+                    encode(page.getNextCursor()), encode(page.getPrevCursor())));
+            return "posts";
+        }
+
+        // Большая страница — потоком: посты читаются порциями по ходу отрисовки, готовое сразу уходит клиенту.
+        // Курсор на следующую страницу зависел бы от последнего поста, а он выше по странице ещё не известен,
+        // поэтому листание здесь по номеру страницы
+        if (streamPageSize > 0 && pageSize >= streamPageSize) {
+            model.addAttribute("paging", new Paging(pageNumber, pageSize, blog.countFeed(tag)));
+            model.addAttribute("popularTags", blog.findPopularTags(POPULAR_TAGS));
+            model.addAttribute("posts", new FlushingPosts(
+                    blog.streamFeed(tag, pageNumber, pageSize, STREAM_CHUNK), STREAM_CHUNK, response));
+            return "posts";
+        }
+
+        // страница, её размер и теги — независимые запросы, сервис может выполнить их параллельно
+        FeedView view = blog.findFeedView(tag, pageNumber, pageSize, POPULAR_TAGS); // ← передаём 1-based
+        var posts = view.getPosts();
+        int total = view.getTotal();
+        var paging = new Paging(pageNumber, pageSize, total);    // 1-based
+        if (paging.hasNext() && !posts.isEmpty()) {
+            // дальше листаем уже курсором от последнего поста страницы
+            String next = FeedCursor.of(posts.get(posts.size() - 1), pageNumber + 1).encode();
+            paging = new Paging(pageNumber, pageSize, total, next, null);
+        }
 
         model.addAttribute("posts", posts);
-        model.addAttribute("search", tag);                        // ← пустая строка по умолчанию
-        model.addAttribute("paging", new Paging(pageNumber, pageSize, total)); // 1-based
+        model.addAttribute("paging", paging);
+        model.addAttribute("popularTags", view.getPopularTags());
         return "posts";
     }
 
@@ -56,7 +116,7 @@ public class PostController {
                          @RequestParam(value = "tags", defaultValue = "") String tags,
                          @RequestParam("text") String text,
                          @RequestParam(value = "image", required = false) MultipartFile image)  {
-        long id = blog.createPost(title, splitTags(tags), text, bytesOrNull(image));
+        long id = blog.createPost(title, splitTags(tags), text, uploadOrNull(image));
         return "redirect:/posts/" + id;
     }
 
@@ -88,7 +148,7 @@ public class PostController {
                          @RequestParam(value = "tags", defaultValue = "") String tags,
                          @RequestParam("text") String text,
                          @RequestParam(value = "image", required = false) MultipartFile image){
-        blog.updatePost(id, title, splitTags(tags), text, bytesOrNull(image));
+        blog.updatePost(id, title, splitTags(tags), text, uploadOrNull(image));
         return "redirect:/posts/" + id;
     }
 
@@ -123,10 +183,29 @@ public class PostController {
         return "redirect:/posts";
     }
 
+    // не картинка или слишком большая — 400 с причиной
+    @ExceptionHandler(InvalidImageException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public String invalidImage(InvalidImageException e) {
+        return e.getMessage();
+    }
+
+    // неверный запрос по тегам (например, слишком много тегов) — 400 с причиной
+    @ExceptionHandler(value = InvalidTagQueryException.class, produces = "text/plain;charset=UTF-8")
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public String invalidTagQuery(InvalidTagQueryException e) {
+        return e.getMessage();
+    }
+
     // helpers
-    private static byte[] bytesOrNull(MultipartFile f) {
-        try { return (f != null && !f.isEmpty()) ? f.getBytes() : null; }
-        catch (Exception e) { throw new RuntimeException(e); }
+    private static String encode(FeedCursor cursor) {
+        return cursor == null ? null : cursor.encode();
+    }
+    // байты не читаем: сервис возьмёт поток части и запишет его прямо в хранилище картинок
+    private static ImageUpload uploadOrNull(MultipartFile f) {
+        return (f != null && !f.isEmpty()) ? new ImageUpload(f, f.getContentType()) : null;
     }
     private static List<String> splitTags(String csv) {
         return (csv == null || csv.isBlank())
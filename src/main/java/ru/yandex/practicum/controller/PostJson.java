@@ -0,0 +1,127 @@
+package ru.yandex.practicum.controller;
+
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostField;
+import ru.yandex.practicum.model.PostSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Посты и комментарии в JSON для API: только запрошенные поля, в порядке PostField.
+ * Картинка — ссылкой imageUrl на /images/{id}, байты картинки в JSON не пишутся.
+ */
+final class PostJson {
+
+    private PostJson() {
+    }
+
+    static void summary(StringBuilder out, PostSummary p, Set<PostField> fields, String contextPath) {
+        Fields f = new Fields(out);
+        for (PostField field : fields) {
+            switch (field) {
+                case ID -> f.raw(field, String.valueOf(p.getId()));
+                case TITLE -> f.string(field, p.getTitle());
+                case PREVIEW -> f.string(field, p.getPreview());
+                case TAGS -> f.strings(field, p.getTags());
+                case LIKES_COUNT -> f.raw(field, String.valueOf(p.getLikesCount()));
+                case COMMENTS_COUNT -> f.raw(field, String.valueOf(p.getCommentsCount()));
+                case CREATED_AT -> f.date(field, p.getCreatedAt());
+                case IMAGE -> f.string(field, p.isHasImage() ? imageUrl(contextPath, p.getId()) : null);
+                default -> {
+                    // текста и комментариев в ленте нет, PostField.parse их не пропускает
+                }
+            }
+        }
+        f.close();
+    }
+
+    static void post(StringBuilder out, Post p, boolean hasImage, Set<PostField> fields, String contextPath) {
+        Fields f = new Fields(out);
+        for (PostField field : fields) {
+            switch (field) {
+                case ID -> f.raw(field, String.valueOf(p.getId()));
+                case TITLE -> f.string(field, p.getTitle());
+                case PREVIEW -> f.string(field, p.getTextPreview());
+                case TEXT -> f.string(field, p.getText());
+                case TAGS -> f.strings(field, p.getTags());
+                case LIKES_COUNT -> f.raw(field, String.valueOf(p.getLikesCount()));
+                case COMMENTS_COUNT -> f.raw(field, String.valueOf(p.getComments().size()));
+                case CREATED_AT -> f.date(field, p.getCreatedAt());
+                case IMAGE -> f.string(field, hasImage ? imageUrl(contextPath, p.getId()) : null);
+                case COMMENTS -> {
+                    f.name(field);
+                    comments(out, p.getComments());
+                }
+            }
+        }
+        f.close();
+    }
+
+    static void comments(StringBuilder out, List<Comment> comments) {
+        out.append('[');
+        for (int i = 0; i < comments.size(); i++) {
+            if (i > 0) out.append(',');
+            Comment c = comments.get(i);
+            out.append("{\"id\":").append(c.getId())
+                    .append(",\"text\":").append(Json.quote(c.getText()))
+                    .append(",\"createdAt\":").append(date(c.getCreatedAt()))
+                    .append('}');
+        }
+        out.append(']');
+    }
+
+    private static String imageUrl(String contextPath, long id) {
+        return contextPath + "/images/" + id;
+    }
+
+    private static String date(LocalDateTime t) {
+        return t == null ? "null" : Json.quote(t.toString());
+    }
+
+    // поля одного объекта через запятую
+    private static final class Fields {
+        private final StringBuilder out;
+        private boolean first = true;
+
+        Fields(StringBuilder out) {
+            this.out = out;
+            out.append('{');
+        }
+
+        void name(PostField field) {
+            if (!first) out.append(',');
+            first = false;
+            out.append('"').append(field.getName()).append("\":");
+        }
+
+        void raw(PostField field, String json) {
+            name(field);
+            out.append(json);
+        }
+
+        void string(PostField field, String value) {
+            raw(field, Json.quote(value));
+        }
+
+        void date(PostField field, LocalDateTime value) {
+            raw(field, PostJson.date(value));
+        }
+
+        void strings(PostField field, List<String> values) {
+            name(field);
+            out.append('[');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) out.append(',');
+                out.append(Json.quote(values.get(i)));
+            }
+            out.append(']');
+        }
+
+        void close() {
+            out.append('}');
+        }
+    }
+}
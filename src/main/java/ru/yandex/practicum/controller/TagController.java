@@ -0,0 +1,42 @@
+package ru.yandex.practicum.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import ru.yandex.practicum.model.TagCount;
+import ru.yandex.practicum.service.BlogService;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+@Controller
+public class TagController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final BlogService blog;
+
+    public TagController(BlogService blog) {
+        this.blog = blog;
+    }
+
+    // Популярные теги в JSON: [{"tag":"java","count":12}, ...], по убыванию числа постов
+    @GetMapping("/tags")
+    public void tags(@RequestParam(value = "limit", defaultValue = "50") int limit,
+                     HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        PrintWriter out = response.getWriter();
+        out.write('[');
+        boolean first = true;
+        for (TagCount t : blog.findPopularTags(Math.max(1, Math.min(limit, MAX_LIMIT)))) {
+            if (!first) out.write(',');
+            first = false;
+            out.write("{\"tag\":" + Json.quote(t.getTag()) + ",\"count\":" + t.getCount() + "}");
+        }
+        out.write(']');
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма с фиксированными корзинами: запись — поиск корзины и два LongAdder, без блокировок.
+ * Корзины и сумма копятся с момента запуска (для Prometheus, он сам считает квантили по приращениям),
+ * а {@link #quantile(double)} оценивается по последним одной-двум минутам — чтобы p99 показывал
+ * текущее состояние, а не среднее за всё время работы.
+ */
+public final class Histogram {
+
+    // задержки в микросекундах: 50 мкс … 10 с
+    public static final long[] LATENCY_MICROS = {
+            50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000};
+
+    // небольшие количества: SQL-выражений на запрос и т.п.
+    public static final long[] COUNTS = {0, 1, 2, 3, 5, 10, 20, 50, 100};
+
+    private static final long WINDOW_MS = 60_000;
+
+    private final long[] bounds;        // верхние границы корзин (включительно), последняя корзина — +Inf
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+
+    // два окна по минуте: текущее и предыдущее; окно чистится при первой записи в новую минуту
+    private final AtomicLongArray[] recent = new AtomicLongArray[2];
+    private final AtomicLongArray recentEpochs = new AtomicLongArray(2);
+
+    public Histogram(long[] bounds) {
+        this.bounds = bounds;
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        for (int i = 0; i < recent.length; i++) recent[i] = new AtomicLongArray(buckets.length);
+    }
+
+    public void record(long value) {
+        int bucket = bucket(value);
+        buckets[bucket].increment();
+        sum.add(value);
+
+        long epoch = System.currentTimeMillis() / WINDOW_MS;
+        int slot = (int) (epoch & 1);
+        long seen = recentEpochs.get(slot);
+        // пара записей на стыке минут может потеряться — для оценки квантиля это неважно
+        if (seen != epoch && recentEpochs.compareAndSet(slot, seen, epoch)) {
+            for (int i = 0; i < buckets.length; i++) recent[slot].set(i, 0);
+        }
+        recent[slot].incrementAndGet(bucket);
+    }
+
+    public long[] bounds() {
+        return bounds;
+    }
+
+    // Число значений в корзине i (i == bounds().length — больше последней границы)
+    public long bucketCount(int i) {
+        return buckets[i].sum();
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder b : buckets) count += b.sum();
+        return count;
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Оценка квантиля q (0..1) по значениям за последние одну-две минуты, с линейной
+     * интерполяцией внутри корзины. NaN — за это время ничего не записано.
+     */
+    public double quantile(double q) {
+        long epoch = System.currentTimeMillis() / WINDOW_MS;
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int slot = 0; slot < recent.length; slot++) {
+            long e = recentEpochs.get(slot);
+            if (e != epoch && e != epoch - 1) continue; // окно старше минуты
+            for (int i = 0; i < counts.length; i++) {
+                long n = recent[slot].get(i);
+                counts[i] += n;
+                total += n;
+            }
+        }
+        if (total == 0) return Double.NaN;
+
+        double rank = q * total;
+        long before = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || before + counts[i] < rank) {
+                before += counts[i];
+                continue;
+            }
+            if (i == bounds.length) return bounds[bounds.length - 1]; // выше последней границы точнее не сказать
+            long lower = i == 0 ? 0 : bounds[i - 1];
+            return lower + (bounds[i] - lower) * ((rank - before) / counts[i]);
+        }
+        return bounds[bounds.length - 1];
+    }
+
+    private int bucket(long value) {
+        int i = Arrays.binarySearch(bounds, value);
+        return i >= 0 ? i : -i - 1;
+    }
+}
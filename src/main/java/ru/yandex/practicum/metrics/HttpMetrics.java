@@ -0,0 +1,84 @@
+package ru.yandex.practicum.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Время обработки HTTP-запросов (вместе с отрисовкой шаблона) и число SQL-выражений на запрос —
+ * по методу и шаблону пути обработчика ("/posts/{id}", а не каждый id отдельно).
+ */
+@Component
+public class HttpMetrics implements HandlerInterceptor, MetricsSource {
+
+    private static final String START = HttpMetrics.class.getName() + ".start";
+    // шаблонов путей столько, сколько обработчиков; лимит — на случай экзотических HTTP-методов
+    private static final int MAX_ENDPOINTS = 200;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Endpoint other = new Endpoint("OTHER", "other");
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // forward/error-диспетчеризация того же запроса уже считается снаружи
+        if (request.getAttribute(START) == null) {
+            request.setAttribute(START, System.nanoTime());
+            RequestStats.open();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(START) instanceof Long start) || request.getAttribute(START + ".done") != null) return;
+        request.setAttribute(START + ".done", Boolean.TRUE);
+        RequestStats stats = RequestStats.current();
+        RequestStats.close();
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Endpoint endpoint = endpoint(request.getMethod(), pattern == null ? "unmatched" : pattern.toString());
+        endpoint.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        if (stats != null) endpoint.statements.record(stats.getStatements());
+        if (ex != null || response.getStatus() >= 500) endpoint.errors.increment();
+    }
+
+    @Override
+    public void writeTo(PrometheusText out) {
+        out.family("blog_http_request_duration_seconds", "histogram", "Время обработки HTTP-запроса");
+        endpoints.values().forEach(e -> out.histogram("blog_http_request_duration_seconds", e.labels, e.latency, 1e-6));
+        out.family("blog_http_request_duration_quantile_seconds", "gauge", "p50/p99 времени обработки за последние 1-2 минуты");
+        endpoints.values().forEach(e -> out.quantiles("blog_http_request_duration_quantile_seconds", e.labels, e.latency, 1e-6, 0.5, 0.99));
+        out.family("blog_http_request_statements", "histogram", "SQL-выражений на HTTP-запрос");
+        endpoints.values().forEach(e -> out.histogram("blog_http_request_statements", e.labels, e.statements, 1));
+        out.family("blog_http_request_errors_total", "counter", "HTTP-запросы, завершённые исключением или статусом 5xx");
+        endpoints.values().forEach(e -> out.sample("blog_http_request_errors_total", e.labels, e.errors.sum()));
+    }
+
+    private Endpoint endpoint(String method, String path) {
+        String key = method + ' ' + path;
+        Endpoint e = endpoints.get(key);
+        if (e != null) return e;
+        if (endpoints.size() >= MAX_ENDPOINTS) return endpoints.computeIfAbsent(other.key, k -> other);
+        return endpoints.computeIfAbsent(key, k -> new Endpoint(method, path));
+    }
+
+    private static final class Endpoint {
+        final String key;
+        final String labels;
+        final Histogram latency = new Histogram(Histogram.LATENCY_MICROS);
+        final Histogram statements = new Histogram(Histogram.COUNTS);
+        final LongAdder errors = new LongAdder();
+
+        Endpoint(String method, String path) {
+            this.key = method + ' ' + path;
+            this.labels = PrometheusText.labels("method", method, "endpoint", path);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.metrics;
+
+/**
+ * Компонент, который отдаёт свои метрики на /metrics.
+ */
+public interface MetricsSource {
+    void writeTo(PrometheusText out);
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика пула соединений: сколько соединений занято/свободно, сколько потоков ждёт
+ * и сколько в среднем/максимум занимает получение соединения из пула.
+ * Hikari сам вызывает трекер, а наружу всё видно через JMX (myblog:type=ConnectionPool) и на /metrics.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=ConnectionPool")
+public class PoolMetrics implements MetricsTrackerFactory, MetricsSource {
+
+    private volatile PoolStats stats;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator acquireMaxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeouts = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.stats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                acquireMaxNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    @ManagedAttribute(description = "Занятые соединения")
+    public int getActive() {
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+
+    @ManagedAttribute(description = "Свободные соединения")
+    public int getIdle() {
+        return stats == null ? 0 : stats.getIdleConnections();
+    }
+
+    @ManagedAttribute(description = "Потоки, ожидающие соединение")
+    public int getWaiting() {
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+
+    @ManagedAttribute(description = "Всего соединений в пуле")
+    public int getTotal() {
+        return stats == null ? 0 : stats.getTotalConnections();
+    }
+
+    @ManagedAttribute(description = "Сколько раз брали соединение из пула")
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    @ManagedAttribute(description = "Среднее время получения соединения, мкс")
+    public long getAcquireAvgMicros() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / count);
+    }
+
+    @ManagedAttribute(description = "Максимальное время получения соединения, мкс")
+    public long getAcquireMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(acquireMaxNanos.get());
+    }
+
+    @ManagedAttribute(description = "Сколько раз не дождались соединения")
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public void writeTo(PrometheusText out) {
+        out.family("blog_pool_connections", "gauge", "Соединения пула");
+        out.sample("blog_pool_connections", PrometheusText.labels("state", "active"), getActive());
+        out.sample("blog_pool_connections", PrometheusText.labels("state", "idle"), getIdle());
+        out.family("blog_pool_waiting_threads", "gauge", "Потоки, ожидающие соединение");
+        out.sample("blog_pool_waiting_threads", "", getWaiting());
+        out.family("blog_pool_acquire_total", "counter", "Сколько раз брали соединение из пула");
+        out.sample("blog_pool_acquire_total", "", acquireCount.sum());
+        out.family("blog_pool_acquire_seconds_total", "counter", "Суммарное время получения соединения");
+        out.sample("blog_pool_acquire_seconds_total", "", acquireNanos.sum() * 1e-9);
+        out.family("blog_pool_timeouts_total", "counter", "Сколько раз не дождались соединения");
+        out.sample("blog_pool_timeouts_total", "", timeouts.sum());
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.metrics;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Текстовый формат Prometheus (exposition format 0.0.4): строки HELP/TYPE на семейство
+ * и сэмплы вида {@code name{label="value"} 1.5}. Сэмплы одного семейства пишутся подряд.
+ */
+public final class PrometheusText {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder(16 * 1024);
+    private final Set<String> declared = new HashSet<>();
+
+    // Заголовок семейства; повторный вызов с тем же именем ничего не пишет
+    public PrometheusText family(String name, String type, String help) {
+        if (declared.add(name)) {
+            out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+        return this;
+    }
+
+    public PrometheusText sample(String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (Double.isNaN(value)) out.append("NaN");
+        else if (Double.isInfinite(value)) out.append(value > 0 ? "+Inf" : "-Inf");
+        else if (value == Math.rint(value) && Math.abs(value) < 1e15) out.append((long) value);
+        else out.append(value);
+        out.append('\n');
+        return this;
+    }
+
+    /**
+     * Корзины, сумма и число значений гистограммы. scale переводит её единицы в единицы
+     * метрики (например, 1e-6 — микросекунды в секунды).
+     */
+    public PrometheusText histogram(String name, String labels, Histogram h, double scale) {
+        long[] bounds = h.bounds();
+        long cumulative = 0;
+        for (int i = 0; i <= bounds.length; i++) {
+            cumulative += h.bucketCount(i);
+            String le = i < bounds.length ? number(bounds[i] * scale) : "+Inf";
+            sample(name + "_bucket", with(labels, "le", le), cumulative);
+        }
+        sample(name + "_sum", labels, h.sum() * scale);
+        sample(name + "_count", labels, cumulative);
+        return this;
+    }
+
+    // Квантили гистограммы за последние минуты, по сэмплу на каждый q
+    public PrometheusText quantiles(String name, String labels, Histogram h, double scale, double... qs) {
+        for (double q : qs) sample(name, with(labels, "quantile", number(q)), h.quantile(q) * scale);
+        return this;
+    }
+
+    // {k1="v1",k2="v2"} из пар имя-значение; без пар — пустая строка
+    public static String labels(String... pairs) {
+        if (pairs.length == 0) return "";
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(pairs[i]).append("=\"").append(escape(pairs[i + 1])).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private static String with(String labels, String name, String value) {
+        String pair = name + "=\"" + escape(value) + '"';
+        return labels.isEmpty() ? "{" + pair + "}" : labels.substring(0, labels.length() - 1) + "," + pair + "}";
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Счётчики текущего HTTP-запроса: сколько SQL-выражений он выполнил и сколько они заняли.
+ * {@link HttpMetrics} привязывает их к потоку запроса, {@link SqlMetrics} пополняет, а задачи,
+ * которые запрос отдаёт в другие потоки, получают их через {@link #propagate(Supplier)}.
+ */
+public final class RequestStats {
+
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicLong sqlNanos = new AtomicLong();
+
+    // null — поток сейчас не обслуживает HTTP-запрос
+    public static RequestStats current() {
+        return CURRENT.get();
+    }
+
+    // Задача, которая в любом потоке считает SQL в счётчики запроса, из которого её создали
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        RequestStats stats = CURRENT.get();
+        if (stats == null) return task;
+        return () -> {
+            RequestStats previous = CURRENT.get();
+            CURRENT.set(stats);
+            try {
+                return task.get();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public int getStatements() {
+        return statements.get();
+    }
+
+    public long getSqlNanos() {
+        return sqlNanos.get();
+    }
+
+    static RequestStats open() {
+        RequestStats stats = new RequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    void statement(long nanos) {
+        statements.incrementAndGet();
+        sqlNanos.addAndGet(nanos);
+    }
+}
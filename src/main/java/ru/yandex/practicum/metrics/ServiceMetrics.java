@@ -0,0 +1,60 @@
+package ru.yandex.practicum.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время вызовов методов @Service-бинов. Бин оборачивается прокси по его интерфейсам
+ * (без интерфейсов — не трогаем); внутренние вызовы самого сервиса не считаются.
+ */
+@Component
+public class ServiceMetrics implements BeanPostProcessor, MetricsSource {
+
+    private final Map<String, Histogram> calls = new ConcurrentHashMap<>(); // метки → гистограмма
+    private final Map<Method, Histogram> byMethod = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> type = AopUtils.getTargetClass(bean);
+        if (!type.isAnnotationPresent(Service.class) || ClassUtils.getAllInterfaces(bean).length == 0) return bean;
+
+        String service = ClassUtils.getAllInterfacesForClass(type)[0].getSimpleName();
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                histogram(service, invocation.getMethod()).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            }
+        });
+        return factory.getProxy(type.getClassLoader());
+    }
+
+    @Override
+    public void writeTo(PrometheusText out) {
+        out.family("blog_service_call_duration_seconds", "histogram", "Время вызова метода сервиса");
+        calls.forEach((labels, h) -> out.histogram("blog_service_call_duration_seconds", labels, h, 1e-6));
+        out.family("blog_service_call_duration_quantile_seconds", "gauge", "p50/p99 времени вызова за последние 1-2 минуты");
+        calls.forEach((labels, h) -> out.quantiles("blog_service_call_duration_quantile_seconds", labels, h, 1e-6, 0.5, 0.99));
+    }
+
+    // перегрузки (findFeed по строке и по TagQuery) считаются вместе
+    private Histogram histogram(String service, Method method) {
+        Histogram h = byMethod.get(method);
+        if (h != null) return h;
+        String labels = PrometheusText.labels("service", service, "method", method.getName());
+        return byMethod.computeIfAbsent(method,
+                m -> calls.computeIfAbsent(labels, k -> new Histogram(Histogram.LATENCY_MICROS)));
+    }
+}
@@ -0,0 +1,293 @@
+package ru.yandex.practicum.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Время и число строк каждого SQL-выражения. Оборачивает DataSource (как StatementCounter в тестах):
+ * выражение считается от первого execute до close, так что в время входит и чтение результата;
+ * строки — прочитанные через ResultSet.next() или изменённые.
+ * <p>
+ * Выражения группируются по тексту, в котором пробелы схлопнуты, а списки "?, ?, ?" для IN
+ * сведены к одному — иначе каждый размер страницы давал бы свою метку. Больше max-statements
+ * разных текстов не заводим, остальное идёт в "other".
+ * <p>
+ * Выражения дольше slow-query-ms пишутся в лог вместе с параметрами.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=SqlMetrics")
+public class SqlMetrics implements BeanPostProcessor, MetricsSource {
+
+    private static final System.Logger log = System.getLogger(SqlMetrics.class.getName());
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern PARAM_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final int MAX_SQL_LENGTH = 300;
+    private static final int MAX_PARAM_LENGTH = 100;
+    private static final Object[] NO_PARAMS = new Object[0];
+
+    private final long slowNanos;
+    private final int maxStatements;
+    private final Map<String, Query> byText = new ConcurrentHashMap<>(); // текст как есть → выражение
+    private final Map<String, Query> bySql = new ConcurrentHashMap<>();  // нормализованный текст → выражение
+    private final Query other = new Query("other");
+    private final LongAdder slow = new LongAdder();
+
+    // BeanPostProcessor создаётся раньше, чем начинают разрешаться @Value, поэтому настройки — из Environment
+    public SqlMetrics(Environment environment) {
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(environment.getProperty("blog.metrics.slow-query-ms", Long.class, 100L));
+        this.maxStatements = environment.getProperty("blog.metrics.max-statements", Integer.class, 500);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource ds && !(bean instanceof MeteredDataSource) ? new MeteredDataSource(ds) : bean;
+    }
+
+    @Override
+    public void writeTo(PrometheusText out) {
+        Map<String, Query> all = new LinkedHashMap<>(bySql);
+        if (other.calls.sum() > 0) all.put(other.sql, other);
+
+        out.family("blog_sql_calls_total", "counter", "Выполнено SQL-выражений");
+        all.values().forEach(q -> out.sample("blog_sql_calls_total", q.labels, q.calls.sum()));
+        out.family("blog_sql_duration_seconds_total", "counter", "Суммарное время SQL-выражений, включая чтение результата");
+        all.values().forEach(q -> out.sample("blog_sql_duration_seconds_total", q.labels, q.latency.sum() * 1e-6));
+        out.family("blog_sql_duration_quantile_seconds", "gauge", "p50/p99 времени SQL-выражения за последние 1-2 минуты");
+        all.values().forEach(q -> out.quantiles("blog_sql_duration_quantile_seconds", q.labels, q.latency, 1e-6, 0.5, 0.99));
+        out.family("blog_sql_rows_total", "counter", "Строк прочитано или изменено");
+        all.values().forEach(q -> out.sample("blog_sql_rows_total", q.labels, q.rows.sum()));
+        out.family("blog_sql_errors_total", "counter", "SQL-выражения, завершившиеся ошибкой");
+        all.values().forEach(q -> out.sample("blog_sql_errors_total", q.labels, q.errors.sum()));
+        out.family("blog_sql_slow_total", "counter", "SQL-выражения дольше порога медленного запроса");
+        out.sample("blog_sql_slow_total", "", slow.sum());
+    }
+
+    @ManagedAttribute(description = "Медленных SQL-выражений с момента запуска")
+    public long getSlowQueries() {
+        return slow.sum();
+    }
+
+    @ManagedAttribute(description = "Разных SQL-выражений в статистике")
+    public int getStatements() {
+        return bySql.size();
+    }
+
+    static String normalize(String sql) {
+        String s = PARAM_LIST.matcher(SPACES.matcher(sql).replaceAll(" ").trim()).replaceAll("?, ...");
+        return s.length() > MAX_SQL_LENGTH ? s.substring(0, MAX_SQL_LENGTH) + "..." : s;
+    }
+
+    private Query query(String text) {
+        Query q = byText.get(text);
+        if (q != null) return q;
+        String sql = normalize(text);
+        q = bySql.get(sql);
+        if (q == null) q = bySql.size() < maxStatements ? bySql.computeIfAbsent(sql, Query::new) : other;
+        if (byText.size() < 4 * maxStatements) byText.putIfAbsent(text, q);
+        return q;
+    }
+
+    private static final class Query {
+        final String sql;
+        final String labels;
+        final LongAdder calls = new LongAdder();
+        final Histogram latency = new Histogram(Histogram.LATENCY_MICROS);
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Query(String sql) {
+            this.sql = sql;
+            this.labels = PrometheusText.labels("sql", sql);
+        }
+    }
+
+    // DataSource, чьи соединения отдают измеряемые выражения; close() — для destroyMethod пула
+    private final class MeteredDataSource extends DelegatingDataSource implements AutoCloseable {
+
+        MeteredDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return metered(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return metered(super.getConnection(username, password));
+        }
+
+        // пул (HikariDataSource) закрывается вместе с обёрткой; его close() проверяемых исключений не бросает
+        @Override
+        public void close() {
+            if (!(getTargetDataSource() instanceof AutoCloseable closeable)) return;
+            try {
+                closeable.close();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Не удалось закрыть DataSource", e);
+            }
+        }
+    }
+
+    private Connection metered(Connection target) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = call(target, method, args);
+                    return switch (method.getName()) {
+                        case "prepareStatement" -> Proxy.newProxyInstance(getClass().getClassLoader(),
+                                new Class<?>[]{PreparedStatement.class}, new Timing((Statement) result, query((String) args[0])));
+                        case "createStatement" -> Proxy.newProxyInstance(getClass().getClassLoader(),
+                                new Class<?>[]{Statement.class}, new Timing((Statement) result, null));
+                        default -> result;
+                    };
+                });
+    }
+
+    /**
+     * Одно выражение: параметры запоминаются по ходу setXxx (для лога медленных),
+     * время и строки записываются при close(). Выражение используется из одного потока.
+     */
+    private final class Timing implements InvocationHandler {
+
+        private final Statement target;
+        private Query query;          // у Statement текст становится известен только в execute
+        private Object[] params = NO_PARAMS;
+        private int bound;            // наибольший заданный номер параметра
+        private long start;           // 0 — ещё не выполнялось
+        private long rows;
+        private boolean failed;
+        private boolean finished;
+
+        Timing(Statement target, Query query) {
+            this.target = target;
+            this.query = query;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) return execute(method, args);
+            if (name.equals("close")) {
+                try {
+                    return call(target, method, args);
+                } finally {
+                    finish();
+                }
+            }
+            if (name.equals("getResultSet")) {
+                ResultSet rs = (ResultSet) call(target, method, args);
+                return rs == null ? null : counting(rs);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            }
+            return call(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (start == 0) start = System.nanoTime();
+            if (query == null && args != null && args.length > 0 && args[0] instanceof String sql) query = query(sql);
+            Object result;
+            try {
+                result = call(target, method, args);
+            } catch (SQLException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+            if (result instanceof ResultSet rs) return counting(rs);
+            if (result instanceof Integer n && n > 0) rows += n;
+            else if (result instanceof Long n && n > 0) rows += n;
+            else if (result instanceof int[] batch) for (int n : batch) rows += Math.max(n, 0);
+            else if (result instanceof long[] batch) for (long n : batch) rows += Math.max(n, 0);
+            return result;
+        }
+
+        private ResultSet counting(ResultSet rs) {
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        Object result = call(rs, method, args);
+                        if (Boolean.TRUE.equals(result) && method.getName().equals("next")) rows++;
+                        return result;
+                    });
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1 || index > 10_000) return;
+            if (index > params.length) params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            params[index - 1] = value;
+            bound = Math.max(bound, index);
+        }
+
+        private void finish() {
+            if (finished || start == 0) return;
+            finished = true;
+            long nanos = System.nanoTime() - start;
+            Query q = query != null ? query : other;
+            q.calls.increment();
+            q.latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            q.rows.add(rows);
+            if (failed) q.errors.increment();
+
+            RequestStats stats = RequestStats.current();
+            if (stats != null) stats.statement(nanos);
+
+            if (nanos >= slowNanos) {
+                slow.increment();
+                log.log(System.Logger.Level.WARNING, "Медленный SQL: {0} мс, строк {1}: {2} параметры {3}",
+                        TimeUnit.NANOSECONDS.toMillis(nanos), rows, q.sql, describe(params, bound));
+            }
+        }
+    }
+
+    private static String describe(Object[] params, int count) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            Object p = params[i];
+            String text;
+            if (p == null) text = "NULL";
+            else if (p instanceof byte[] bytes) text = "<" + bytes.length + " байт>";
+            else if (p instanceof InputStream || p instanceof Reader) text = "<поток>";
+            else if (p instanceof CharSequence s) text = "'" + s + "'";
+            else text = p.toString();
+            sb.append(text.length() > MAX_PARAM_LENGTH ? text.substring(0, MAX_PARAM_LENGTH) + "..." : text);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
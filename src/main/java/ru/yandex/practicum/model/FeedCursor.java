@@ -0,0 +1,45 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Позиция в ленте для keyset-пагинации: (created_at, id) граничного поста
+ * и номер страницы, на которую ведёт курсор (только для отображения).
+ * Наружу уходит как непрозрачный токен.
+ */
+@Getter
+@AllArgsConstructor
+public class FeedCursor {
+    private final LocalDateTime createdAt;
+    private final long id;
+    private final int page; // 1-based
+
+    public static FeedCursor of(PostSummary post, int page) {
+        return new FeedCursor(post.getCreatedAt(), post.getId(), page);
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id + "|" + page;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Битый или чужой токен — просто пусто, лента откроется с первой страницы
+    public static Optional<FeedCursor> decode(String token) {
+        if (token == null || token.isBlank()) return Optional.empty();
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3) return Optional.empty();
+            return Optional.of(new FeedCursor(LocalDateTime.parse(parts[0]),
+                    Long.parseLong(parts[1]), Math.max(Integer.parseInt(parts[2]), 1)));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница ленты, прочитанная по курсору, с курсорами соседних страниц.
+ */
+@Getter
+@AllArgsConstructor
+public class FeedPage {
+    private final List<PostSummary> posts;
+    private final int pageNumber;        // 1-based
+    private final FeedCursor nextCursor; // null — дальше постов нет
+    private final FeedCursor prevCursor; // null — назад только на первую страницу (или уже на ней)
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Всё, что нужно странице ленты по номеру: посты, их общее число и популярные теги.
+ */
+@Getter
+@AllArgsConstructor
+public class FeedView {
+    private final List<PostSummary> posts;
+    private final int total;
+    private final List<TagCount> popularTags;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Формат картинки, определённый по её байтам: MIME-тип и размеры в пикселях.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageFormat {
+    private final String contentType;
+    private final Integer width;  // null — размеры не прочитались из заголовка
+    private final Integer height;
+}
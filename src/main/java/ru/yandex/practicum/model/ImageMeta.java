@@ -0,0 +1,39 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Метаданные картинки поста — всё, что нужно для HTTP-кэширования, без самих байтов.
+ * Тип и размеры определяются по содержимому файла при загрузке.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageMeta {
+    private final String hash; // SHA-256, hex
+    private final long size;
+    private final LocalDateTime updatedAt;
+    private final String contentType; // null — формат не распознан (старые картинки)
+    private final Integer width;      // null — размеры не удалось прочитать из заголовка
+    private final Integer height;
+
+    public ImageMeta(String hash, long size, LocalDateTime updatedAt) {
+        this(hash, size, updatedAt, null, null, null);
+    }
+
+    public ImageMeta withFormat(ImageFormat format) {
+        return format == null ? this
+                : new ImageMeta(hash, size, updatedAt, format.getContentType(), format.getWidth(), format.getHeight());
+    }
+
+    public String etag() {
+        return "\"" + hash + "\"";
+    }
+
+    public long lastModifiedMillis() {
+        return updatedAt == null ? -1 : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * Загружаемая картинка: откуда читать байты (обычно часть multipart-запроса) и
+ * заявленный клиентом тип. Байты читаются потоком, целиком в память не поднимаются.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageUpload {
+    private final InputStreamSource source;
+    private final String contentType; // из заголовка части, может быть null
+
+    // null для пустого массива — как «картинку не прислали»
+    public static ImageUpload of(byte[] bytes) {
+        return bytes == null || bytes.length == 0 ? null : new ImageUpload(new ByteArrayResource(bytes), null);
+    }
+}
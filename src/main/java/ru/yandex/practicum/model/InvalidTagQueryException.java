@@ -0,0 +1,13 @@
+package ru.yandex.practicum.model;
+
+import java.io.Serial;
+
+// Строку поиска по тегам нельзя выполнить как есть (например, слишком много тегов)
+public class InvalidTagQueryException extends IllegalArgumentException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public InvalidTagQueryException(String message) {
+        super(message);
+    }
+}
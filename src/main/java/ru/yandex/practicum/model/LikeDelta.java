@@ -0,0 +1,38 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Накопленные, ещё не записанные в БД лайки поста.
+ * Последовательность +1/-1 с правилом «не ниже нуля» сворачивается в одну функцию
+ * likes → max(floor, likes + delta), поэтому после агрегации результат тот же,
+ * что и при поштучном применении.
+ */
+@Getter
+@AllArgsConstructor
+public class LikeDelta {
+    private final long postId;
+    private final int delta;
+    private final int floor;
+
+    public static LikeDelta none(long postId) {
+        return new LikeDelta(postId, 0, 0);
+    }
+
+    // likeUp: x → x + 1;  likeDown: x → max(0, x - 1)
+    public LikeDelta then(boolean likeUp) {
+        return likeUp
+                ? new LikeDelta(postId, delta + 1, floor + 1)
+                : new LikeDelta(postId, delta - 1, Math.max(0, floor - 1));
+    }
+
+    public int applyTo(int likes) {
+        return Math.max(floor, likes + delta);
+    }
+
+    // сначала this, потом next — тоже одна функция: max(next.floor, max(floor, x + delta) + next.delta)
+    public LikeDelta andThen(LikeDelta next) {
+        return new LikeDelta(postId, delta + next.delta, Math.max(next.floor, floor + next.delta));
+    }
+}
@@ -8,7 +8,13 @@ import lombok.Getter;
 public class Paging {
     private final int pageNumber; // 1-based
     private final int pageSize;
-    private final int total;
+    private final int total;      // -1 — не считали (режим курсора)
+    private final String nextCursor; // токен для ?after=, null — следующая страница по номеру
+    private final String prevCursor; // токен для ?before=, null — предыдущая страница по номеру
+
+    public Paging(int pageNumber, int pageSize, int total) {
+        this(pageNumber, pageSize, total, null, null);
+    }
 
     public int pageNumber() { return pageNumber; }
     public int pageSize()   { return pageSize; }
@@ -16,6 +22,7 @@ public class Paging {
     public boolean isHasPrevious() { return hasPrevious(); }
 
     public boolean hasNext() {
+        if (total < 0) return nextCursor != null;
         long shown = (long) pageNumber * pageSize; // 1-based
         return shown < total;
     }
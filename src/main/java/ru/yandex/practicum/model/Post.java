@@ -3,11 +3,10 @@ package ru.yandex.practicum.model;
 import lombok.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Post {
@@ -28,18 +27,12 @@ public class Post {
     @Builder.Default
     private List<Comment> comments = new ArrayList<>();
 
+    // для ленты: сами комментарии не грузим, только их количество
+    private int commentsCount;
+
+    // первые строки текста; в ленте вместо этого читается готовое posts.preview (PostSummary)
     public String getTextPreview() {
-        if (getText().isBlank()) return "";
-        String[] lines = getText().split("\\R+");
-        StringBuilder sb = new StringBuilder();
-        int count = Math.min(lines.length, 3);
-        for (int i = 0; i < count; i++) {
-            if (!lines[i].isBlank()) {
-                if (sb.length() > 0) sb.append(System.lineSeparator());
-                sb.append(lines[i].trim());
-            }
-        }
-        return sb.toString();
+        return PostText.preview(text, PostText.PREVIEW_LINES);
     }
 
     public String getTagsAsText() {
@@ -47,12 +40,8 @@ public class Post {
         return String.join(",", tags);
     }
 
-    public java.util.List<String> getTextParts() {
-        if (text == null || text.isBlank()) return java.util.List.of();
-        return java.util.Arrays.stream(text.split("\\R"))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .toList();
+    public List<String> getTextParts() {
+        return PostText.paragraphs(text);
     }
 
 }
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.model;
+
+import lombok.Getter;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Поля поста, которые клиент API может запросить (?fields=id,title,likesCount).
+ * В ленте по ним выбираются колонки: не запрошено превью — оно не читается,
+ * не запрошено число комментариев — нет запроса к comments.
+ */
+@Getter
+public enum PostField {
+    ID("id"),
+    TITLE("title"),
+    PREVIEW("preview"),
+    TEXT("text"),
+    TAGS("tags"),
+    LIKES_COUNT("likesCount"),
+    COMMENTS_COUNT("commentsCount"),
+    CREATED_AT("createdAt"),
+    IMAGE("imageUrl"),    // ссылка на /images/{id}, сами байты в JSON не попадают никогда
+    COMMENTS("comments");
+
+    // что есть у поста в ленте (PostSummary)
+    public static final Set<PostField> FEED =
+            EnumSet.of(ID, TITLE, PREVIEW, TAGS, LIKES_COUNT, COMMENTS_COUNT, CREATED_AT, IMAGE);
+    public static final Set<PostField> ALL = EnumSet.allOf(PostField.class);
+
+    private final String name;
+
+    PostField(String name) {
+        this.name = name;
+    }
+
+    /**
+     * "id,title" → поля; пусто — все allowed. Неизвестное или недоступное здесь поле —
+     * IllegalArgumentException с его именем.
+     */
+    public static Set<PostField> parse(String fields, Set<PostField> allowed) {
+        if (fields == null || fields.isBlank()) return EnumSet.copyOf(allowed);
+        Set<PostField> result = EnumSet.noneOf(PostField.class);
+        for (String name : fields.split(",")) {
+            String n = name.trim();
+            if (n.isEmpty()) continue;
+            PostField field = null;
+            for (PostField f : values()) {
+                if (f.name.equals(n)) field = f;
+            }
+            if (field == null || !allowed.contains(field)) {
+                throw new IllegalArgumentException("Неизвестное поле: " + n);
+            }
+            result.add(field);
+        }
+        return result.isEmpty() ? EnumSet.copyOf(allowed) : result;
+    }
+}
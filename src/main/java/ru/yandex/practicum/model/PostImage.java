@@ -0,0 +1,14 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Картинка поста, уже положенная в ImageStore: оригинал и уменьшенная копия для ленты.
+ */
+@Getter
+@AllArgsConstructor
+public class PostImage {
+    private final ImageMeta original;
+    private final ImageMeta thumbnail; // null — оригинал и так небольшой или не декодируется
+}
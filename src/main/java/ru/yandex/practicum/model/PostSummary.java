@@ -0,0 +1,30 @@
+package ru.yandex.practicum.model;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пост в ленте: без полного текста, картинки и комментариев.
+ * Полный {@link Post} собирается только для страницы поста.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostSummary {
+    private Long id;
+    private String title;
+    private String preview; // posts.preview — первые строки текста
+
+    @Builder.Default
+    private List<String> tags = new ArrayList<>();
+
+    private int likesCount;
+    private LocalDateTime createdAt;
+    private int commentsCount;
+    private boolean hasImage; // есть ли что показать по /images/{id}
+    private List<Snippet.Part> snippet; // только в результатах поиска: фрагмент текста с совпадениями
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбор текста поста на строки за один проход, без регулярок.
+ * Переводы строк — те же, что у \R: LF, CRLF, CR, VT, FF, NEL, LS, PS.
+ */
+public final class PostText {
+
+    public static final int PREVIEW_LINES = 3;
+    public static final int PREVIEW_MAX_LENGTH = 4000; // размер колонки posts.preview
+
+    private PostText() {
+    }
+
+    /**
+     * Первые maxLines непустых строк (обрезанных по краям) через перевод строки.
+     * Дальше текст не читается, пропущенные строки не копируются.
+     */
+    public static String preview(String text, int maxLines) {
+        if (text == null || text.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder();
+        int found = 0;
+        int n = text.length();
+        int start = 0;
+        while (start < n && found < maxLines) {
+            int end = lineEnd(text, start);
+            int s = trimStart(text, start, end);
+            int e = trimEnd(text, s, end);
+            if (!isBlank(text, s, e)) {
+                if (sb.length() > 0) sb.append(System.lineSeparator());
+                sb.append(text, s, e);
+                found++;
+            }
+            start = nextLine(text, end);
+        }
+        return sb.length() > PREVIEW_MAX_LENGTH ? sb.substring(0, PREVIEW_MAX_LENGTH) : sb.toString();
+    }
+
+    // Все непустые строки (абзацы), обрезанные по краям
+    public static List<String> paragraphs(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+        List<String> parts = new ArrayList<>();
+        int n = text.length();
+        int start = 0;
+        while (start < n) {
+            int end = lineEnd(text, start);
+            int s = trimStart(text, start, end);
+            int e = trimEnd(text, s, end);
+            if (s < e) parts.add(text.substring(s, e));
+            start = nextLine(text, end);
+        }
+        return parts;
+    }
+
+    private static int lineEnd(String text, int from) {
+        int n = text.length();
+        for (int i = from; i < n; i++) {
+            if (isLineBreak(text.charAt(i))) return i;
+        }
+        return n;
+    }
+
+    private static int nextLine(String text, int end) {
+        if (end >= text.length()) return text.length();
+        if (text.charAt(end) == '\r' && end + 1 < text.length() && text.charAt(end + 1) == '\n') return end + 2;
+        return end + 1;
+    }
+
+    private static boolean isLineBreak(char c) {
+        return (c >= '\n' && c <= '\r') || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    // как String.trim(): по краям отбрасываются символы <= ' '
+    private static int trimStart(String text, int s, int e) {
+        while (s < e && text.charAt(s) <= ' ') s++;
+        return s;
+    }
+
+    private static int trimEnd(String text, int s, int e) {
+        while (e > s && text.charAt(e - 1) <= ' ') e--;
+        return e;
+    }
+
+    // как String.isBlank(): пусто или только пробельные символы
+    private static boolean isBlank(String text, int s, int e) {
+        for (int i = s; i < e; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Единые правила разбиения текста на слова для полнотекстового поиска:
+ * буквы и цифры любого алфавита, нижний регистр, слова короче двух символов пропускаются.
+ * По ним пишется индекс search_terms и разбирается запрос.
+ */
+public final class SearchTerms {
+
+    public static final int MAX_TERM_LENGTH = 64;
+    // длиннее запрос не нужен, а каждое слово — ещё один диапазон по индексу
+    public static final int MAX_QUERY_TERMS = 8;
+
+    static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private SearchTerms() {
+    }
+
+    // слово → сколько раз встретилось
+    public static Map<String, Integer> count(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (text == null) return counts;
+        Matcher m = WORD.matcher(text);
+        while (m.find()) {
+            String term = term(m.group());
+            if (term != null) counts.merge(term, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    // слова запроса без повторов, в порядке появления
+    public static List<String> query(String q) {
+        if (q == null) return List.of();
+        Set<String> terms = new LinkedHashSet<>();
+        Matcher m = WORD.matcher(q);
+        while (m.find() && terms.size() < MAX_QUERY_TERMS) {
+            String term = term(m.group());
+            if (term != null) terms.add(term);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // null — слово в индекс не попадает
+    static String term(String word) {
+        if (word.length() < 2) return null;
+        String t = word.toLowerCase(Locale.ROOT);
+        return t.length() > MAX_TERM_LENGTH ? t.substring(0, MAX_TERM_LENGTH) : t;
+    }
+}
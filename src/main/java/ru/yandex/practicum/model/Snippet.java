@@ -0,0 +1,74 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * Фрагмент текста вокруг первого найденного слова для результатов поиска.
+ * Совпадения отмечены в частях, а не HTML-разметкой: шаблон экранирует текст сам.
+ */
+public final class Snippet {
+
+    public static final int MAX_LENGTH = 240;
+    private static final int CONTEXT_BEFORE = 60;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Part {
+        private final String text;
+        private final boolean match;
+    }
+
+    private Snippet() {
+    }
+
+    // null — в тексте нет ни одного слова из terms (нашлось по заголовку или комментариям)
+    public static List<Part> of(String text, Collection<String> terms) {
+        if (text == null || terms.isEmpty()) return null;
+        Matcher m = SearchTerms.WORD.matcher(text);
+        int first = -1;
+        while (m.find()) {
+            if (terms.contains(SearchTerms.term(m.group()))) {
+                first = m.start();
+                break;
+            }
+        }
+        if (first < 0) return null;
+
+        int from = wordStart(text, Math.max(0, first - CONTEXT_BEFORE));
+        int to = Math.min(text.length(), from + MAX_LENGTH);
+        List<Part> parts = new ArrayList<>();
+        if (from > 0) parts.add(new Part("…", false));
+
+        int plain = from;
+        m.region(from, to);
+        while (m.find()) {
+            if (!terms.contains(SearchTerms.term(m.group()))) continue;
+            if (m.start() > plain) parts.add(new Part(flatten(text.substring(plain, m.start())), false));
+            parts.add(new Part(m.group(), true));
+            plain = m.end();
+        }
+        if (to > plain) parts.add(new Part(flatten(text.substring(plain, to)), false));
+        if (to < text.length()) parts.add(new Part("…", false));
+        return parts;
+    }
+
+    // не начинаем фрагмент с середины слова
+    private static int wordStart(String text, int pos) {
+        while (pos > 0 && pos < text.length() && Character.isLetterOrDigit(text.charAt(pos))
+                && Character.isLetterOrDigit(text.charAt(pos - 1))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // переводы строк внутри фрагмента — пробелы
+    private static String flatten(String s) {
+        return s.replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Тег и число постов с ним (для облака популярных тегов).
+ */
+@Getter
+@AllArgsConstructor
+public class TagCount {
+    private final String tag;
+    private final int count;
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Запрос ленты по тегам из строки поиска:
+ * <ul>
+ *     <li>{@code java} — один тег (как раньше);</li>
+ *     <li>{@code java,spring} — посты со всеми тегами;</li>
+ *     <li>{@code java|spring} — посты с любым из тегов;</li>
+ *     <li>{@code spr*} — тег, начинающийся с «spr»; сочетается с обоими режимами.</li>
+ * </ul>
+ * Термы нормализуются как теги; {@link #toString()} — каноничная запись (ключ кэша ленты).
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TagQuery {
+
+    public static final TagQuery ALL_POSTS = new TagQuery(true, List.of());
+    // больше термов в одном запросе — каждый лишний терм ещё одна проверка на пост
+    public static final int MAX_TERMS = 8;
+
+    private final boolean matchAll;   // true — все термы (И), false — любой (ИЛИ)
+    private final List<String> terms; // нормализованные; префиксные заканчиваются на '*'
+
+    // Больше MAX_TERMS термов — InvalidTagQueryException: молча отброшенный терм расширил бы выдачу «все из»
+    public static TagQuery parse(String search) {
+        if (search == null || search.isBlank()) return ALL_POSTS;
+        boolean any = search.indexOf('|') >= 0;
+        List<String> terms = Arrays.stream(search.split(any ? "\\|" : ","))
+                .map(TagQuery::term)
+                .filter(t -> !t.isEmpty())
+                .distinct()
+                .toList();
+        if (terms.size() > MAX_TERMS) {
+            throw new InvalidTagQueryException("Слишком много тегов в запросе: " + terms.size()
+                    + ", можно не больше " + MAX_TERMS);
+        }
+        return terms.isEmpty() ? ALL_POSTS : new TagQuery(!any, terms);
+    }
+
+    private static String term(String raw) {
+        String t = Tags.normalize(raw);
+        if (!t.endsWith("*")) return t;
+        String prefix = t.replaceAll("\\*+$", "").trim();
+        return prefix.isEmpty() ? "" : prefix + "*";
+    }
+
+    public static boolean isPrefix(String term) {
+        return term.endsWith("*");
+    }
+
+    public static String prefixOf(String term) {
+        return term.substring(0, term.length() - 1);
+    }
+
+    public boolean isAllPosts() {
+        return terms.isEmpty();
+    }
+
+    // Один точный тег — его лента читается прямо из индекса post_tags, а число постов известно
+    public boolean isSingleTag() {
+        return terms.size() == 1 && !isPrefix(terms.get(0));
+    }
+
+    // "" — вся лента, иначе тег для isSingleTag()
+    public String singleTag() {
+        return terms.isEmpty() ? "" : terms.get(0);
+    }
+
+    @Override
+    public String toString() {
+        return terms.stream().collect(Collectors.joining(matchAll ? "," : "|"));
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.model;
+
+import java.util.List;
+
+/**
+ * Единые правила для тегов: нижний регистр, без пробелов по краям, без пустых и повторов.
+ * По ним пишутся tags_csv/post_tags и считаются ключи кэшей.
+ */
+public final class Tags {
+
+    private Tags() {
+    }
+
+    public static List<String> normalize(List<String> tags) {
+        if (tags == null || tags.isEmpty()) return List.of();
+        return tags.stream()
+                .filter(t -> t != null)
+                .map(Tags::normalize)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    public static String normalize(String tag) {
+        return tag == null ? "" : tag.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.repository;
+
+import java.util.List;
+
+// Счётчики ссылок на картинки в ImageStore (таблица images)
+public interface ImageRepository {
+
+    // Ещё один пост ссылается на картинку; строка создаётся при первой ссылке
+    void retain(String hash, long size);
+
+    // Пост перестал ссылаться на картинку
+    void release(String hash);
+
+    // Картинки, на которые никто не ссылается
+    List<String> findUnreferenced();
+
+    // Удаляет строку, только если ссылок так и нет; true — удалили
+    boolean deleteUnreferenced(String hash);
+
+    List<String> findAllHashes();
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.repository;
+
+import ru.yandex.practicum.model.ImageMeta;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Хранилище байтов картинок, адресуемое содержимым: ключ — SHA-256 (hex) байтов.
+ * Одинаковые загрузки ложатся в один и тот же объект. Кто на него ссылается,
+ * хранилище не знает — ссылки считает таблица images.
+ */
+public interface ImageStore {
+
+    // Дочитывает поток до конца, считая хэш на лету, и сохраняет (если таких байтов ещё нет).
+    // В памяти держится только буфер копирования
+    ImageMeta put(InputStream in);
+
+    default String put(byte[] bytes) {
+        return put(new ByteArrayInputStream(bytes)).getHash();
+    }
+
+    // Поток для чтения картинки; закрывает вызывающий
+    Optional<InputStream> open(String hash);
+
+    // Пишет картинку в out; false, если такой нет
+    boolean write(String hash, OutputStream out);
+
+    // true, если что-то удалили
+    boolean delete(String hash);
+
+    // Все хэши, которые сейчас лежат в хранилище
+    Set<String> hashes();
+}
@@ -1,21 +1,94 @@
 package ru.yandex.practicum.repository;
 
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.model.LikeDelta;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostField;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.model.TagQuery;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface PostRepository {
-    List<Post> findFeed(String tag, int offset, int limit);
-    int countFeed(String tag);
+    // Лента отдаёт облегчённые посты: превью вместо текста, признак картинки вместо байтов.
+    // Фильтр — запрос по тегам (один тег, все/любой из нескольких, префикс), порядок всегда по дате.
+    // fields — какие поля PostSummary читать (из PostField.FEED); id и дата читаются всегда
+    List<PostSummary> findFeed(TagQuery query, int offset, int limit, Set<PostField> fields);
+    int countFeed(TagQuery query);
+
+    // Keyset-пагинация: посты старше курсора / новее курсора, всегда по убыванию (created_at, id)
+    List<PostSummary> findFeedAfter(TagQuery query, FeedCursor after, int limit, Set<PostField> fields);
+    List<PostSummary> findFeedBefore(TagQuery query, FeedCursor before, int limit, Set<PostField> fields);
+
+    // То же со всеми полями
+    default List<PostSummary> findFeed(TagQuery query, int offset, int limit) {
+        return findFeed(query, offset, limit, PostField.FEED);
+    }
+
+    default List<PostSummary> findFeedAfter(TagQuery query, FeedCursor after, int limit) {
+        return findFeedAfter(query, after, limit, PostField.FEED);
+    }
+
+    default List<PostSummary> findFeedBefore(TagQuery query, FeedCursor before, int limit) {
+        return findFeedBefore(query, before, limit, PostField.FEED);
+    }
+
+    // То же по строке поиска (см. TagQuery.parse)
+    default List<PostSummary> findFeed(String search, int offset, int limit) {
+        return findFeed(TagQuery.parse(search), offset, limit);
+    }
+
+    default int countFeed(String search) {
+        return countFeed(TagQuery.parse(search));
+    }
+
+    default List<PostSummary> findFeedAfter(String search, FeedCursor after, int limit) {
+        return findFeedAfter(TagQuery.parse(search), after, limit);
+    }
+
+    default List<PostSummary> findFeedBefore(String search, FeedCursor before, int limit) {
+        return findFeedBefore(TagQuery.parse(search), before, limit);
+    }
+
+    // Облегчённые посты по списку id — в том же порядке (для результатов поиска)
+    List<PostSummary> findSummaries(List<Long> ids);
+
+    // Полные тексты постов — для фрагментов с подсветкой в результатах поиска
+    Map<Long, String> findTexts(Collection<Long> ids);
 
     Optional<Post> findById(long id);
 
-    long create(String title, List<String> tags, String text, byte[] imageBytes);
+    // Хэш/размер/дата картинки — ключ в ImageStore, ETag и Last-Modified
+    Optional<ImageMeta> findImageMeta(long id);
+
+    // То же для уменьшенной копии (для ленты); если её нет — оригинал
+    Optional<ImageMeta> findThumbnailMeta(long id);
+
+    // image — уже положенная в ImageStore картинка (или null); ссылки на неё учитываются в images
+    long create(String title, List<String> tags, String text, PostImage image);
 
-    void update(long id, String title, List<String> tags, String text, byte[] imageBytesOrNull);
+    // Результат — на сколько изменилось число постов по тегам ("" — вся лента), посчитанное под
+    // блокировкой строки поста; пусто, если поста нет. По нему сдвигаются кэшированные счётчики
+    Map<String, Integer> update(long id, String title, List<String> tags, String text, PostImage imageOrNull);
 
-    void delete(long id);
+    Map<String, Integer> delete(long id);
+
+    // Картинки, оставшиеся BLOB-ами в posts.image_data, — для переноса в ImageStore
+    List<Long> findIdsWithImageData();
+
+    Optional<byte[]> findImageData(long id);
+
+    // BLOB перенесён: обнуляет image_data и ссылается на картинку в ImageStore
+    void moveImageData(long id, ImageMeta image);
 
     void like(long id, boolean likeUp);
+
+    // Пачкой применить накопленные лайки: likes_count = max(floor, likes_count + delta)
+    void applyLikes(Collection<LikeDelta> deltas);
 }
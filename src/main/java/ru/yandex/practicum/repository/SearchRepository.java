@@ -0,0 +1,18 @@
+package ru.yandex.practicum.repository;
+
+import java.util.List;
+
+// Обратный индекс для полнотекстового поиска (таблица search_terms)
+public interface SearchRepository {
+
+    // Переписать слова заголовка и текста поста; вызывается в транзакции записи поста
+    void indexPost(long postId, String title, String text);
+
+    // Переписать слова комментариев поста — после добавления/правки/удаления комментария
+    void indexComments(long postId);
+
+    // id постов, где есть все слова, по убыванию веса совпадений (при равенстве — новые выше)
+    List<Long> search(List<String> terms, int offset, int limit);
+
+    int count(List<String> terms);
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.repository;
+
+import ru.yandex.practicum.model.TagCount;
+
+import java.util.List;
+import java.util.Map;
+
+// Число постов по каждому тегу (таблица tag_counts)
+public interface TagRepository {
+
+    // Сдвинуть счётчики: тег → ±N; вызывается в транзакции записи поста
+    void apply(Map<String, Integer> deltas);
+
+    // limit самых частых тегов, по убыванию числа постов
+    List<TagCount> findTop(int limit);
+
+    // Пересчитать все счётчики из post_tags; возвращает число тегов
+    int rebuild();
+}
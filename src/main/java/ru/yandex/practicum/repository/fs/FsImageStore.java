@@ -0,0 +1,153 @@
+package ru.yandex.practicum.repository.fs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.repository.ImageStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Картинки в файлах: {dir}/ab/abcdef… — первые два символа хэша дают подкаталог,
+ * чтобы в одном каталоге не копились десятки тысяч файлов.
+ * Загрузка пишется потоком во временный файл (хэш считается по ходу) и переносится
+ * на место одним rename, так что читатель никогда не видит недописанную картинку.
+ */
+@Repository
+public class FsImageStore implements ImageStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tmp;
+
+    public FsImageStore(@Value("${blog.images.dir:${java.io.tmpdir}/myblog/images}") String dir) {
+        this.root = Path.of(dir).toAbsolutePath();
+        this.tmp = root.resolve("tmp");
+        try {
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ImageMeta put(InputStream in) {
+        try {
+            Path part = Files.createTempFile(tmp, "upload", ".part");
+            try {
+                MessageDigest digest = sha256();
+                long size = 0;
+                byte[] buffer = new byte[BUFFER_SIZE];
+                try (OutputStream out = Files.newOutputStream(part)) {
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, n);
+                        out.write(buffer, 0, n);
+                        size += n;
+                    }
+                }
+
+                String hash = HexFormat.of().formatHex(digest.digest());
+                Path target = path(hash);
+                if (!Files.exists(target)) { // иначе такие байты уже загружали
+                    Files.createDirectories(target.getParent());
+                    try {
+                        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        // те же байты параллельно положил другой запрос
+                    }
+                }
+                return new ImageMeta(hash, size, LocalDateTime.now());
+            } finally {
+                Files.deleteIfExists(part);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<InputStream> open(String hash) {
+        try {
+            return Optional.of(Files.newInputStream(path(hash)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean write(String hash, OutputStream out) {
+        // Сервлетный OutputStream принимает только byte[], так что zero-copy (sendfile) до него
+        // не дотянуть: файл копируется потоком через буфер фиксированного размера, целиком в кучу не читается
+        try {
+            Files.copy(path(hash), out);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean delete(String hash) {
+        try {
+            return Files.deleteIfExists(path(hash));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Set<String> hashes() {
+        Set<String> result = new HashSet<>();
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(Files::isRegularFile)
+                    .filter(p -> !p.getParent().equals(tmp))
+                    .map(p -> p.getFileName().toString())
+                    .filter(FsImageStore::isHash)
+                    .forEach(result::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private Path path(String hash) {
+        // хэш приходит из БД, но в путь попадает только то, что похоже на SHA-256
+        if (!isHash(hash)) throw new IllegalArgumentException("Not a SHA-256 hex: " + hash);
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static boolean isHash(String s) {
+        if (s == null || s.length() != 64) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) return false;
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -5,22 +5,26 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.repository.CommentRepository;
+import ru.yandex.practicum.repository.SearchRepository;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
 
 /**
- * Тут все запросы в таблицу comments
+ * Тут все запросы в таблицу comments; слова комментариев попадают в поисковый индекс поста
  */
 @Repository
 @RequiredArgsConstructor
 public class JdbcCommentRepository implements CommentRepository {
 
     private final JdbcTemplate jdbc;
+    private final SearchRepository search;
 
     @Override
     public List<Comment> findByPostId(long postId) {
@@ -30,18 +34,11 @@ public class JdbcCommentRepository implements CommentRepository {
                 WHERE post_id = ?
                 ORDER BY created_at ASC, id ASC
                 """;
-        return jdbc.query(sql, (rs, rowNum) -> {
-            var c = new Comment();
-            c.setId(rs.getLong("id"));
-            c.setPostId(rs.getLong("post_id"));
-            c.setText(rs.getString("text"));
-            var ts = rs.getTimestamp("created_at");
-            c.setCreatedAt(ts == null ? null : ts.toLocalDateTime());
-            return c;
-        }, postId);
+        return jdbc.query(sql, (rs, rowNum) -> mapComment(rs), postId);
     }
 
     @Override
+    @Transactional
     public long create(long postId, String text) {
         var sql = "INSERT INTO comments (post_id, text, created_at) VALUES (?, ?, ?)";
         KeyHolder kh = new GeneratedKeyHolder();
@@ -53,16 +50,33 @@ public class JdbcCommentRepository implements CommentRepository {
             return ps;
         }, kh);
         Number key = kh.getKey();
+        search.indexComments(postId);
         return key == null ? 0L : key.longValue();
     }
 
     @Override
+    @Transactional
     public void update(long postId, long commentId, String text) {
-        jdbc.update("UPDATE comments SET text = ? WHERE id = ? AND post_id = ?", text, commentId, postId);
+        if (jdbc.update("UPDATE comments SET text = ? WHERE id = ? AND post_id = ?", text, commentId, postId) > 0) {
+            search.indexComments(postId);
+        }
     }
 
     @Override
+    @Transactional
     public void delete(long postId, long commentId) {
-        jdbc.update("DELETE FROM comments WHERE id = ? AND post_id = ?", commentId, postId);
+        if (jdbc.update("DELETE FROM comments WHERE id = ? AND post_id = ?", commentId, postId) > 0) {
+            search.indexComments(postId);
+        }
+    }
+
+    private static Comment mapComment(ResultSet rs) throws java.sql.SQLException {
+        var c = new Comment();
+        c.setId(rs.getLong("id"));
+        c.setPostId(rs.getLong("post_id"));
+        c.setText(rs.getString("text"));
+        var ts = rs.getTimestamp("created_at");
+        c.setCreatedAt(ts == null ? null : ts.toLocalDateTime());
+        return c;
     }
 }
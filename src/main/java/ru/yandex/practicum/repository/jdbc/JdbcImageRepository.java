@@ -0,0 +1,54 @@
+package ru.yandex.practicum.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.repository.ImageRepository;
+
+import java.util.List;
+
+/**
+ * Тут все запросы в таблицу images
+ */
+@Repository
+@RequiredArgsConstructor
+public class JdbcImageRepository implements ImageRepository {
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void retain(String hash, long size) {
+        if (increment(hash)) return;
+        try {
+            jdbc.update("INSERT INTO images (hash, size, ref_count) VALUES (?, ?, 1)", hash, size);
+        } catch (DuplicateKeyException e) {
+            // ту же картинку одновременно загрузили в другой пост — строка уже есть
+            increment(hash);
+        }
+    }
+
+    private boolean increment(String hash) {
+        return jdbc.update("UPDATE images SET ref_count = ref_count + 1 WHERE hash = ?", hash) > 0;
+    }
+
+    @Override
+    public void release(String hash) {
+        jdbc.update("UPDATE images SET ref_count = ref_count - 1 WHERE hash = ? AND ref_count > 0", hash);
+    }
+
+    @Override
+    public List<String> findUnreferenced() {
+        return jdbc.queryForList("SELECT hash FROM images WHERE ref_count = 0", String.class);
+    }
+
+    @Override
+    public boolean deleteUnreferenced(String hash) {
+        return jdbc.update("DELETE FROM images WHERE hash = ? AND ref_count = 0", hash) > 0;
+    }
+
+    @Override
+    public List<String> findAllHashes() {
+        return jdbc.queryForList("SELECT hash FROM images", String.class);
+    }
+}
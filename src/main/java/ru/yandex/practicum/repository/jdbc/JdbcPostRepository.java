@@ -5,9 +5,22 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.model.LikeDelta;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostField;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.model.PostText;
+import ru.yandex.practicum.model.TagQuery;
+import ru.yandex.practicum.model.Tags;
+import ru.yandex.practicum.repository.ImageRepository;
 import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.repository.SearchRepository;
+import ru.yandex.practicum.repository.TagRepository;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -17,100 +30,546 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * Тут все запросы в таблицу posts
+ * Тут все запросы в таблицы posts и post_tags; ссылки на картинки считает {@link ImageRepository},
+ * поисковый индекс и счётчики тегов обновляют {@link SearchRepository} и {@link TagRepository} в той же транзакции
  */
 @Repository
 @RequiredArgsConstructor
 public class JdbcPostRepository implements PostRepository {
 
     private final JdbcTemplate jdbc;
+    private final ImageRepository images;
+    private final SearchRepository search;
+    private final TagRepository tagCounts;
 
     @Override
-    public List<Post> findFeed(String tag, int offset, int limit) {
-        boolean filter = tag != null && !tag.isBlank();
+    public List<PostSummary> findFeed(TagQuery query, int offset, int limit, Set<PostField> fields) {
+        if (!query.isAllPosts() && !query.isSingleTag()) return findByTags(query, null, offset, limit, fields);
+        String tag = query.singleTag();
+        boolean filter = !tag.isEmpty();
 
-        String sql = """
-        SELECT id, title, text, tags_csv, image_data, likes_count, created_at
-        FROM posts
-        %s
-        ORDER BY created_at DESC
-        LIMIT ? OFFSET ?
-        """.formatted(filter ? "WHERE (',' || LOWER(tags_csv) || ',') LIKE ('%,' || LOWER(?) || ',%')" : "");
+        // по тегу идём от post_tags: диапазон по индексу (tag, created_at), без полного скана posts
+        String sql = filter
+                ? """
+                SELECT %s
+                FROM post_tags t JOIN posts p ON p.id = t.post_id
+                WHERE t.tag = ?
+                ORDER BY t.created_at DESC, t.post_id DESC
+                LIMIT ? OFFSET ?
+                """
+                : """
+                SELECT %s
+                FROM posts
+                ORDER BY created_at DESC, id DESC
+                LIMIT ? OFFSET ?
+                """;
+        sql = sql.formatted(columns(fields, filter ? "p." : ""));
 
         Object[] args = filter
-                ? new Object[]{tag, limit, offset}
+                ? new Object[]{Tags.normalize(tag), limit, offset}
                 : new Object[]{limit, offset};
 
-        return jdbc.query(sql, (rs, rn) -> mapPost(rs, false), args);
+        List<PostSummary> list = jdbc.query(sql, (rs, rn) -> mapSummary(rs, fields), args);
+        if (fields.contains(PostField.COMMENTS_COUNT)) fillCommentCounts(list);
+        return list;
+    }
+
+    @Override
+    public List<PostSummary> findFeedAfter(TagQuery query, FeedCursor after, int limit, Set<PostField> fields) {
+        if (!query.isAllPosts() && !query.isSingleTag()) return findByTags(query, new Bound(after, false), 0, limit, fields);
+        String tag = query.singleTag();
+        boolean filter = !tag.isEmpty();
+
+        // (created_at, id) < (?, ?) в виде, где первое условие — диапазон по индексу
+        String sql = filter
+                ? """
+                SELECT %s
+                FROM post_tags t JOIN posts p ON p.id = t.post_id
+                WHERE t.tag = ? AND t.created_at <= ? AND (t.created_at < ? OR t.post_id < ?)
+                ORDER BY t.created_at DESC, t.post_id DESC
+                LIMIT ?
+                """
+                : """
+                SELECT %s
+                FROM posts
+                WHERE created_at <= ? AND (created_at < ? OR id < ?)
+                ORDER BY created_at DESC, id DESC
+                LIMIT ?
+                """;
+        sql = sql.formatted(columns(fields, filter ? "p." : ""));
+
+        Timestamp ts = Timestamp.valueOf(after.getCreatedAt());
+        Object[] args = filter
+                ? new Object[]{Tags.normalize(tag), ts, ts, after.getId(), limit}
+                : new Object[]{ts, ts, after.getId(), limit};
+
+        List<PostSummary> list = jdbc.query(sql, (rs, rn) -> mapSummary(rs, fields), args);
+        if (fields.contains(PostField.COMMENTS_COUNT)) fillCommentCounts(list);
+        return list;
+    }
+
+    @Override
+    public List<PostSummary> findFeedBefore(TagQuery query, FeedCursor before, int limit, Set<PostField> fields) {
+        if (!query.isAllPosts() && !query.isSingleTag()) return findByTags(query, new Bound(before, true), 0, limit, fields);
+        String tag = query.singleTag();
+        boolean filter = !tag.isEmpty();
+
+        // (created_at, id) > (?, ?): читаем ближайшие более новые посты по возрастанию и разворачиваем
+        String sql = filter
+                ? """
+                SELECT %s
+                FROM post_tags t JOIN posts p ON p.id = t.post_id
+                WHERE t.tag = ? AND t.created_at >= ? AND (t.created_at > ? OR t.post_id > ?)
+                ORDER BY t.created_at ASC, t.post_id ASC
+                LIMIT ?
+                """
+                : """
+                SELECT %s
+                FROM posts
+                WHERE created_at >= ? AND (created_at > ? OR id > ?)
+                ORDER BY created_at ASC, id ASC
+                LIMIT ?
+                """;
+        sql = sql.formatted(columns(fields, filter ? "p." : ""));
+
+        Timestamp ts = Timestamp.valueOf(before.getCreatedAt());
+        Object[] args = filter
+                ? new Object[]{Tags.normalize(tag), ts, ts, before.getId(), limit}
+                : new Object[]{ts, ts, before.getId(), limit};
+
+        List<PostSummary> list = new ArrayList<>(jdbc.query(sql, (rs, rn) -> mapSummary(rs, fields), args));
+        Collections.reverse(list);
+        if (fields.contains(PostField.COMMENTS_COUNT)) fillCommentCounts(list);
+        return list;
+    }
+
+    // количество комментариев — одним GROUP BY на всю страницу, без текстов
+    private void fillCommentCounts(List<PostSummary> list) {
+        Map<Long, Integer> counts = loadCommentCounts(list.stream().map(PostSummary::getId).toList());
+        for (PostSummary p : list) {
+            p.setCommentsCount(counts.getOrDefault(p.getId(), 0));
+        }
     }
 
     @Override
-    public int countFeed(String tag) {
-        boolean filter = tag != null && !tag.isBlank();
-        String sql = ("SELECT COUNT(*) FROM posts " +
-                (filter ? "WHERE (',' || LOWER(tags_csv) || ',') LIKE ('%,' || LOWER(?) || ',%')" : ""));
+    public int countFeed(TagQuery query) {
+        if (!query.isAllPosts() && !query.isSingleTag()) return countByTags(query);
+        String tag = query.singleTag();
+        boolean filter = !tag.isEmpty();
         return filter
-                ? Optional.ofNullable(jdbc.queryForObject(sql, Integer.class, tag)).orElse(0)
-                : Optional.ofNullable(jdbc.queryForObject(sql, Integer.class)).orElse(0);
+                ? Optional.ofNullable(jdbc.queryForObject(
+                        "SELECT COUNT(*) FROM post_tags WHERE tag = ?", Integer.class, Tags.normalize(tag))).orElse(0)
+                : Optional.ofNullable(jdbc.queryForObject("SELECT COUNT(*) FROM posts", Integer.class)).orElse(0);
+    }
+
+
+    // ---- Лента по составному запросу тегов: все из / любой из / префикс ----
+    //
+    // Каждый терм — условие на тег: точный тег — tag = ?, префикс — диапазон tag >= 'spr' AND tag < 'sps'.
+    // Всё читается из post_tags по индексу (tag, created_at, post_id), префикс — со всеми подходящими тегами:
+    //  - все из: идём по самому редкому терму (оценка по tag_counts) уже в порядке ленты и для каждого
+    //    поста проверяем остальные термы по первичному ключу (post_id, tag); LIMIT останавливает чтение;
+    //  - любой из: от каждого терма берём не больше offset + limit первых постов (дальше в окно
+    //    страницы они попасть не могут), объединяем и досортировываем только их.
+
+    // Терм запроса: tag — точный тег, иначе диапазон [from, to) (to == null — без верхней границы)
+    private record TagTerm(String tag, String from, String to, long estimate) {
+
+        boolean isRange() {
+            return tag == null;
+        }
+
+        // условие на столбец tag таблицы под alias; параметры — в args
+        String predicate(String alias, List<Object> args) {
+            if (!isRange()) {
+                args.add(tag);
+                return alias + ".tag = ?";
+            }
+            args.add(from);
+            if (to == null) return alias + ".tag >= ?";
+            args.add(to);
+            return alias + ".tag >= ? AND " + alias + ".tag < ?";
+        }
+    }
+
+    // Граница keyset-пагинации: newer — посты новее курсора (страница назад)
+    private record Bound(FeedCursor cursor, boolean newer) {
+    }
+
+    private List<PostSummary> findByTags(TagQuery query, Bound bound, int offset, int limit, Set<PostField> fields) {
+        List<TagTerm> terms = expand(query);
+        List<Object> args = new ArrayList<>();
+        String dir = bound != null && bound.newer() ? "ASC" : "DESC";
+        String matches = query.isMatchAll()
+                ? allOf(terms, bound, args)
+                : anyOf(terms, bound, dir, offset + limit, args);
+
+        var sql = """
+                SELECT %s
+                FROM (%s ORDER BY created_at %s, post_id %s LIMIT ? OFFSET ?) m
+                JOIN posts p ON p.id = m.post_id
+                ORDER BY m.created_at %s, m.post_id %s
+                """.formatted(columns(fields, "p."), matches, dir, dir, dir, dir);
+        args.add(limit);
+        args.add(offset);
+        List<PostSummary> list = new ArrayList<>(jdbc.query(sql, (rs, rn) -> mapSummary(rs, fields), args.toArray()));
+        if (bound != null && bound.newer()) Collections.reverse(list);
+        if (fields.contains(PostField.COMMENTS_COUNT)) fillCommentCounts(list);
+        return list;
+    }
+
+    private int countByTags(TagQuery query) {
+        List<TagTerm> terms = expand(query);
+        List<Object> args = new ArrayList<>();
+        if (query.isMatchAll()) {
+            String matches = allOf(terms, null, args);
+            return Optional.ofNullable(jdbc.queryForObject("SELECT COUNT(*) FROM (" + matches + ")",
+                    Integer.class, args.toArray())).orElse(0);
+        }
+        String any = terms.stream().map(t -> "(" + t.predicate("t", args) + ")").collect(Collectors.joining(" OR "));
+        return Optional.ofNullable(jdbc.queryForObject(
+                "SELECT COUNT(DISTINCT t.post_id) FROM post_tags t WHERE " + any,
+                Integer.class, args.toArray())).orElse(0);
+    }
+
+    // (post_id, created_at) постов, подходящих под все термы
+    private static String allOf(List<TagTerm> terms, Bound bound, List<Object> args) {
+        TagTerm driver = terms.stream().min(Comparator.comparingLong(TagTerm::estimate)).orElseThrow();
+
+        // у поста может быть несколько тегов с одним префиксом
+        StringBuilder sql = new StringBuilder(driver.isRange() ? "SELECT DISTINCT" : "SELECT")
+                .append(" t.post_id, t.created_at FROM post_tags t WHERE ").append(driver.predicate("t", args));
+        appendBound(sql, "t", bound, args);
+        for (TagTerm term : terms) {
+            if (term == driver) continue;
+            sql.append(" AND EXISTS (SELECT 1 FROM post_tags x WHERE x.post_id = t.post_id AND ")
+                    .append(term.predicate("x", args)).append(")");
+        }
+        return sql.toString();
+    }
+
+    // (post_id, created_at) постов, подходящих под любой терм
+    private static String anyOf(List<TagTerm> terms, Bound bound, String dir, int window, List<Object> args) {
+        StringBuilder sql = new StringBuilder("SELECT post_id, created_at FROM (");
+        for (int i = 0; i < terms.size(); i++) {
+            TagTerm term = terms.get(i);
+            if (i > 0) sql.append(" UNION ");
+            // DISTINCT: иначе пост с двумя тегами префикса занял бы в окне два места
+            sql.append(term.isRange() ? "(SELECT DISTINCT" : "(SELECT")
+                    .append(" t.post_id, t.created_at FROM post_tags t WHERE ").append(term.predicate("t", args));
+            appendBound(sql, "t", bound, args);
+            sql.append(" ORDER BY t.created_at ").append(dir).append(", t.post_id ").append(dir)
+                    .append(" LIMIT ?)");
+            args.add(window);
+        }
+        return sql.append(") u").toString();
     }
 
+    private static void appendBound(StringBuilder sql, String alias, Bound bound, List<Object> args) {
+        if (bound == null) return;
+        String cmp = bound.newer() ? ">" : "<";
+        Timestamp ts = Timestamp.valueOf(bound.cursor().getCreatedAt());
+        sql.append(" AND %1$s.created_at %2$s= ? AND (%1$s.created_at %2$s ? OR %1$s.post_id %2$s ?)"
+                .formatted(alias, cmp));
+        args.add(ts);
+        args.add(ts);
+        args.add(bound.cursor().getId());
+    }
+
+    // Термы запроса → условия на тег с оценкой числа постов (по tag_counts; нужна только для выбора порядка)
+    private List<TagTerm> expand(TagQuery query) {
+        List<String> exact = query.getTerms().stream().filter(t -> !TagQuery.isPrefix(t)).toList();
+        Map<String, Long> counts = new HashMap<>();
+        if (!exact.isEmpty()) {
+            jdbc.query("SELECT tag, post_count FROM tag_counts WHERE tag IN (" + placeholders(exact) + ")", rs -> {
+                counts.put(rs.getString("tag"), rs.getLong("post_count"));
+            }, exact.toArray());
+        }
+
+        List<TagTerm> terms = new ArrayList<>();
+        for (String term : query.getTerms()) {
+            if (!TagQuery.isPrefix(term)) {
+                terms.add(new TagTerm(term, null, null, counts.getOrDefault(term, 0L)));
+                continue;
+            }
+            String from = TagQuery.prefixOf(term);
+            String to = rangeEnd(from);
+            List<Object> args = new ArrayList<>();
+            String sql = "SELECT COALESCE(SUM(c.post_count), 0) FROM tag_counts c WHERE "
+                    + new TagTerm(null, from, to, 0).predicate("c", args);
+            Long estimate = jdbc.queryForObject(sql, Long.class, args.toArray());
+            terms.add(new TagTerm(null, from, to, estimate == null ? 0 : estimate));
+        }
+        return terms;
+    }
+
+    // Первая строка после всех строк с этим началом: последний символ + 1 ("spr" → "sps");
+    // null — такой строки нет (начало из одних Character.MAX_VALUE)
+    private static String rangeEnd(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) end--;
+        if (end == 0) return null;
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return values.stream().map(v -> "?").collect(Collectors.joining(","));
+    }
+
+    @Override
+    public List<PostSummary> findSummaries(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        String in = ids.stream().map(id -> "?").collect(Collectors.joining(","));
+        var sql = """
+                SELECT id, title, preview, tags_csv, likes_count, created_at,
+                       image_hash IS NOT NULL AS has_image
+                FROM posts WHERE id IN (%s)
+                """.formatted(in);
+        Map<Long, PostSummary> byId = new HashMap<>();
+        jdbc.query(sql, rs -> {
+            PostSummary p = mapSummary(rs, PostField.FEED);
+            byId.put(p.getId(), p);
+        }, ids.toArray());
+        // в порядке ids; пост могли удалить между поиском и чтением
+        List<PostSummary> list = ids.stream().map(byId::get).filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+        fillCommentCounts(list);
+        return list;
+    }
+
+    @Override
+    public Map<Long, String> findTexts(Collection<Long> ids) {
+        if (ids.isEmpty()) return Map.of();
+        String in = ids.stream().map(id -> "?").collect(Collectors.joining(","));
+        Map<Long, String> texts = new HashMap<>();
+        jdbc.query("SELECT id, text FROM posts WHERE id IN (" + in + ")",
+                rs -> {
+                    texts.put(rs.getLong("id"), rs.getString("text"));
+                }, ids.toArray());
+        return texts;
+    }
 
     @Override
     public Optional<Post> findById(long id) {
+        // картинку не тянем: страница поста ссылается на /images/{id}
         var sql = """
-                SELECT id, title, text, tags_csv, image_data, likes_count, created_at
+                SELECT id, title, text, tags_csv, likes_count, created_at
                 FROM posts WHERE id = ?
                 """;
-        List<Post> list = jdbc.query(sql, (rs, rowNum) -> mapPost(rs, /*withImage*/ true), id);
+        List<Post> list = jdbc.query(sql, (rs, rowNum) -> mapPost(rs), id);
+        return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
+    }
+
+    @Override
+    public Optional<ImageMeta> findImageMeta(long id) {
+        var sql = """
+                SELECT image_hash, image_size, image_updated_at, image_type, image_width, image_height
+                FROM posts WHERE id = ? AND image_hash IS NOT NULL
+                """;
+        List<ImageMeta> list = jdbc.query(sql, (rs, rowNum) -> mapImageMeta(rs), id);
+        return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
+    }
+
+    @Override
+    public Optional<ImageMeta> findThumbnailMeta(long id) {
+        // уменьшенной копии нет — отдаём оригинал
+        var sql = """
+                SELECT COALESCE(thumb_hash, image_hash) AS image_hash,
+                       CASE WHEN thumb_hash IS NULL THEN image_size ELSE thumb_size END AS image_size,
+                       CASE WHEN thumb_hash IS NULL THEN image_type ELSE thumb_type END AS image_type,
+                       CASE WHEN thumb_hash IS NULL THEN image_width ELSE thumb_width END AS image_width,
+                       CASE WHEN thumb_hash IS NULL THEN image_height ELSE thumb_height END AS image_height,
+                       image_updated_at
+                FROM posts WHERE id = ? AND image_hash IS NOT NULL
+                """;
+        List<ImageMeta> list = jdbc.query(sql, (rs, rowNum) -> mapImageMeta(rs), id);
         return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
     }
 
+    private static ImageMeta mapImageMeta(ResultSet rs) throws java.sql.SQLException {
+        Timestamp ts = rs.getTimestamp("image_updated_at");
+        return new ImageMeta(rs.getString("image_hash"), rs.getLong("image_size"),
+                ts == null ? null : ts.toLocalDateTime(), rs.getString("image_type"),
+                rs.getObject("image_width", Integer.class), rs.getObject("image_height", Integer.class));
+    }
+
     @Override
-    public long create(String title, List<String> tags, String text, byte[] imageBytes) {
+    @Transactional
+    public long create(String title, List<String> tags, String text, PostImage image) {
         var sql = """
-                INSERT INTO posts (title, text, tags_csv, image_data, likes_count, created_at)
-                VALUES (?, ?, ?, ?, 0, ?)
+                INSERT INTO posts (title, text, preview, tags_csv, image_updated_at,
+                                   image_hash, image_size, image_type, image_width, image_height,
+                                   thumb_hash, thumb_size, thumb_type, thumb_width, thumb_height,
+                                   likes_count, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)
                 """;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
         KeyHolder kh = new GeneratedKeyHolder();
         jdbc.update(con -> {
             PreparedStatement ps = con.prepareStatement(sql, new String[]{"id"});
             ps.setString(1, title);
             ps.setString(2, text);
-            ps.setString(3, toCsv(tags));
-            if (imageBytes != null && imageBytes.length > 0) {
-                ps.setBytes(4, imageBytes);
-            } else {
-                ps.setNull(4, java.sql.Types.BLOB);
-            }
-            ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setString(3, PostText.preview(text, PostText.PREVIEW_LINES));
+            ps.setString(4, toCsv(tags));
+            ImageMeta original = image == null ? null : image.getOriginal();
+            ImageMeta thumb = image == null ? null : image.getThumbnail();
+            ps.setTimestamp(5, original == null ? null : now);
+            setImage(ps, 6, original);
+            setImage(ps, 11, thumb);
+            ps.setTimestamp(16, now);
             return ps;
         }, kh);
         Number key = kh.getKey();
-        return key == null ? 0L : key.longValue();
+        long id = key == null ? 0L : key.longValue();
+        List<String> normalized = Tags.normalize(tags);
+        saveTags(id, normalized);
+        tagCounts.apply(tagDeltas(List.of(), normalized));
+        retain(image);
+        search.indexPost(id, title, text);
+        return id;
     }
 
     @Override
-    public void update(long id, String title, List<String> tags, String text, byte[] imageBytesOrNull) {
-        if (imageBytesOrNull != null && imageBytesOrNull.length > 0) {
+    @Transactional
+    public Map<String, Integer> update(long id, String title, List<String> tags, String text, PostImage imageOrNull) {
+        int updated;
+        if (imageOrNull != null) {
+            List<String> oldHashes = findImageHashes(id);
+            ImageMeta original = imageOrNull.getOriginal();
+            ImageMeta thumb = imageOrNull.getThumbnail();
             var sql = """
                     UPDATE posts
-                    SET title = ?, text = ?, tags_csv = ?, image_data = ?
+                    SET title = ?, text = ?, preview = ?, tags_csv = ?,
+                        image_data = NULL, image_updated_at = ?,
+                        image_hash = ?, image_size = ?, image_type = ?, image_width = ?, image_height = ?,
+                        thumb_hash = ?, thumb_size = ?, thumb_type = ?, thumb_width = ?, thumb_height = ?
                     WHERE id = ?
                     """;
-            jdbc.update(sql, title, text, toCsv(tags), imageBytesOrNull, id);
+            updated = jdbc.update(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                ps.setString(1, title);
+                ps.setString(2, text);
+                ps.setString(3, PostText.preview(text, PostText.PREVIEW_LINES));
+                ps.setString(4, toCsv(tags));
+                ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+                setImage(ps, 6, original);
+                setImage(ps, 11, thumb);
+                ps.setLong(16, id);
+                return ps;
+            });
+            if (updated > 0) {
+                retain(imageOrNull);
+                oldHashes.forEach(images::release);
+            }
         } else {
             var sql = """
                     UPDATE posts
-                    SET title = ?, text = ?, tags_csv = ?
+                    SET title = ?, text = ?, preview = ?, tags_csv = ?
                     WHERE id = ?
                     """;
-            jdbc.update(sql, title, text, toCsv(tags), id);
+            updated = jdbc.update(sql, title, text, PostText.preview(text, PostText.PREVIEW_LINES), toCsv(tags), id);
         }
+        if (updated == 0) return Map.of();
+        List<String> oldTags = findTags(id);
+        List<String> newTags = Tags.normalize(tags);
+        jdbc.update("DELETE FROM post_tags WHERE post_id = ?", id);
+        saveTags(id, newTags);
+        Map<String, Integer> deltas = tagDeltas(oldTags, newTags);
+        tagCounts.apply(deltas);
+        search.indexPost(id, title, text);
+        return deltas;
+    }
+
+    // строки post_tags для поста; created_at копируется из posts
+    private void saveTags(long postId, List<String> tags) {
+        if (tags.isEmpty()) return;
+        var sql = """
+                INSERT INTO post_tags (post_id, tag, created_at)
+                SELECT id, CAST(? AS VARCHAR(255)), created_at FROM posts WHERE id = ?
+                """;
+        jdbc.batchUpdate(sql, tags.stream().map(t -> new Object[]{t, postId}).toList());
     }
 
     @Override
-    public void delete(long id) {
-        jdbc.update("DELETE FROM posts WHERE id = ?", id);
+    @Transactional
+    public Map<String, Integer> delete(long id) {
+        List<String> hashes = findImageHashes(id);
+        List<String> oldTags = findTags(id);
+        if (jdbc.update("DELETE FROM posts WHERE id = ?", id) == 0) return Map.of();
+        hashes.forEach(images::release);
+        Map<String, Integer> deltas = tagDeltas(oldTags, List.of());
+        tagCounts.apply(deltas);
+        deltas.put("", -1);
+        return deltas;
+    }
+
+    private List<String> findTags(long id) {
+        return jdbc.queryForList("SELECT tag FROM post_tags WHERE post_id = ?", String.class, id);
+    }
+
+    // -1 убранным тегам, +1 добавленным; оставшиеся на месте не трогаем
+    private static Map<String, Integer> tagDeltas(List<String> oldTags, List<String> newTags) {
+        Map<String, Integer> deltas = new HashMap<>();
+        oldTags.forEach(t -> deltas.merge(t, -1, Integer::sum));
+        newTags.forEach(t -> deltas.merge(t, 1, Integer::sum));
+        deltas.values().removeIf(d -> d == 0);
+        return deltas;
+    }
+
+    // Хэши картинки и её уменьшенной копии. Строка поста блокируется до конца транзакции:
+    // две параллельные записи не отпустят старую картинку дважды
+    private List<String> findImageHashes(long id) {
+        List<String> hashes = new ArrayList<>();
+        jdbc.query("SELECT image_hash, thumb_hash FROM posts WHERE id = ? FOR UPDATE", rs -> {
+            if (rs.getString("image_hash") != null) hashes.add(rs.getString("image_hash"));
+            if (rs.getString("thumb_hash") != null) hashes.add(rs.getString("thumb_hash"));
+        }, id);
+        return hashes;
+    }
+
+    // пять параметров подряд: hash, size, type, width, height
+    private static void setImage(PreparedStatement ps, int from, ImageMeta image) throws java.sql.SQLException {
+        ps.setString(from, image == null ? null : image.getHash());
+        ps.setObject(from + 1, image == null ? null : image.getSize(), java.sql.Types.BIGINT);
+        ps.setString(from + 2, image == null ? null : image.getContentType());
+        ps.setObject(from + 3, image == null ? null : image.getWidth(), java.sql.Types.INTEGER);
+        ps.setObject(from + 4, image == null ? null : image.getHeight(), java.sql.Types.INTEGER);
+    }
+
+    private void retain(PostImage image) {
+        if (image == null) return;
+        images.retain(image.getOriginal().getHash(), image.getOriginal().getSize());
+        if (image.getThumbnail() != null) {
+            images.retain(image.getThumbnail().getHash(), image.getThumbnail().getSize());
+        }
+    }
+
+    @Override
+    public List<Long> findIdsWithImageData() {
+        return jdbc.queryForList("SELECT id FROM posts WHERE image_data IS NOT NULL ORDER BY id", Long.class);
+    }
+
+    @Override
+    public Optional<byte[]> findImageData(long id) {
+        List<byte[]> list = jdbc.query("SELECT image_data FROM posts WHERE id = ?",
+                (rs, rowNum) -> rs.getBytes("image_data"), id);
+        return list.stream().filter(b -> b != null && b.length > 0).findFirst();
+    }
+
+    @Override
+    @Transactional
+    public void moveImageData(long id, ImageMeta image) {
+        var sql = """
+                UPDATE posts
+                SET image_data = NULL, image_hash = ?, image_size = ?,
+                    image_type = ?, image_width = ?, image_height = ?,
+                    image_updated_at = COALESCE(image_updated_at, ?)
+                WHERE id = ? AND image_data IS NOT NULL
+                """;
+        if (jdbc.update(sql, image.getHash(), image.getSize(), image.getContentType(), image.getWidth(),
+                image.getHeight(), Timestamp.valueOf(image.getUpdatedAt()), id) > 0) {
+            images.retain(image.getHash(), image.getSize());
+        }
     }
 
     @Override
@@ -121,23 +580,53 @@ public class JdbcPostRepository implements PostRepository {
         jdbc.update(sql, id);
     }
 
+    @Override
+    @Transactional // пачка целиком или никак: при ошибке LikeBuffer вернёт её в буфер
+    public void applyLikes(Collection<LikeDelta> deltas) {
+        if (deltas.isEmpty()) return;
+        jdbc.batchUpdate("UPDATE posts SET likes_count = GREATEST(?, likes_count + ?) WHERE id = ?",
+                deltas.stream().map(d -> new Object[]{d.getFloor(), d.getDelta(), d.getPostId()}).toList());
+    }
 
-    private static Post mapPost(ResultSet rs, boolean withImage) throws java.sql.SQLException {
+
+    private static Post mapPost(ResultSet rs) throws java.sql.SQLException {
         var p = new Post();
         p.setId(rs.getLong("id"));
         p.setTitle(rs.getString("title"));
         p.setText(rs.getString("text"));
         p.setTags(fromCsv(rs.getString("tags_csv")));
-        if (withImage) {
-            byte[] img = rs.getBytes("image_data");
-            p.setImageData(img);
-        }
         p.setLikesCount(rs.getInt("likes_count"));
         Timestamp ts = rs.getTimestamp("created_at");
         p.setCreatedAt(ts == null ? null : ts.toLocalDateTime());
         return p;
     }
 
+    // Колонки PostSummary под запрошенные поля; id и created_at — всегда, на них порядок ленты и курсор
+    private static String columns(Set<PostField> fields, String alias) {
+        StringJoiner cols = new StringJoiner(", ");
+        cols.add(alias + "id").add(alias + "created_at");
+        if (fields.contains(PostField.TITLE)) cols.add(alias + "title");
+        if (fields.contains(PostField.PREVIEW)) cols.add(alias + "preview");
+        if (fields.contains(PostField.TAGS)) cols.add(alias + "tags_csv");
+        if (fields.contains(PostField.LIKES_COUNT)) cols.add(alias + "likes_count");
+        if (fields.contains(PostField.IMAGE)) cols.add(alias + "image_hash IS NOT NULL AS has_image");
+        return cols.toString();
+    }
+
+    // незапрошенные поля остаются пустыми
+    private static PostSummary mapSummary(ResultSet rs, Set<PostField> fields) throws java.sql.SQLException {
+        var p = new PostSummary();
+        p.setId(rs.getLong("id"));
+        Timestamp ts = rs.getTimestamp("created_at");
+        p.setCreatedAt(ts == null ? null : ts.toLocalDateTime());
+        if (fields.contains(PostField.TITLE)) p.setTitle(rs.getString("title"));
+        if (fields.contains(PostField.PREVIEW)) p.setPreview(rs.getString("preview"));
+        if (fields.contains(PostField.TAGS)) p.setTags(fromCsv(rs.getString("tags_csv")));
+        if (fields.contains(PostField.LIKES_COUNT)) p.setLikesCount(rs.getInt("likes_count"));
+        if (fields.contains(PostField.IMAGE)) p.setHasImage(rs.getBoolean("has_image"));
+        return p;
+    }
+
     private static List<String> fromCsv(String csv) {
         if (csv == null || csv.isBlank()) return List.of();
         return Arrays.stream(csv.split(","))
@@ -145,13 +634,7 @@ public class JdbcPostRepository implements PostRepository {
     }
 
     private static String toCsv(List<String> tags) {
-        if (tags == null || tags.isEmpty()) return "";
-        return tags.stream()
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(String::toLowerCase)
-                .distinct()
-                .collect(Collectors.joining(","));
+        return String.join(",", Tags.normalize(tags));
     }
 
     private Map<Long, Integer> loadCommentCounts(List<Long> postIds) {
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.model.SearchTerms;
+import ru.yandex.practicum.repository.SearchRepository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Тут все запросы в таблицу search_terms. Индекс обновляется по одному посту:
+ * при записи поста переписываются его строки source = 'P', при записи комментария — 'C'.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JdbcSearchRepository implements SearchRepository {
+
+    // слово в заголовке весит как несколько в тексте
+    static final int TITLE_WEIGHT = 5;
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void indexPost(long postId, String title, String text) {
+        Map<String, Integer> weights = new HashMap<>(SearchTerms.count(text));
+        SearchTerms.count(title).forEach((term, n) -> weights.merge(term, n * TITLE_WEIGHT, Integer::sum));
+        replace(postId, "P", weights);
+    }
+
+    @Override
+    public void indexComments(long postId) {
+        Map<String, Integer> weights = new HashMap<>();
+        jdbc.query("SELECT text FROM comments WHERE post_id = ?", rs -> {
+            SearchTerms.count(rs.getString("text")).forEach((t, n) -> weights.merge(t, n, Integer::sum));
+        }, postId);
+        replace(postId, "C", weights);
+    }
+
+    private void replace(long postId, String source, Map<String, Integer> weights) {
+        jdbc.update("DELETE FROM search_terms WHERE post_id = ? AND source = ?", postId, source);
+        if (weights.isEmpty()) return;
+        jdbc.batchUpdate("INSERT INTO search_terms (term, post_id, source, weight) VALUES (?, ?, ?, ?)",
+                weights.entrySet().stream()
+                        .map(e -> new Object[]{e.getKey(), postId, source, e.getValue()})
+                        .toList());
+    }
+
+    @Override
+    public List<Long> search(List<String> terms, int offset, int limit) {
+        if (terms.isEmpty()) return Collections.emptyList();
+        // каждое слово — диапазон по первичному ключу (term, ...); пост должен набрать все слова
+        var sql = """
+                SELECT post_id
+                FROM search_terms
+                WHERE term IN (%s)
+                GROUP BY post_id
+                HAVING COUNT(DISTINCT term) = ?
+                ORDER BY SUM(weight) DESC, post_id DESC
+                LIMIT ? OFFSET ?
+                """.formatted(placeholders(terms));
+        Object[] args = args(terms, limit, offset);
+        return jdbc.queryForList(sql, Long.class, args);
+    }
+
+    @Override
+    public int count(List<String> terms) {
+        if (terms.isEmpty()) return 0;
+        var sql = """
+                SELECT COUNT(*) FROM (
+                    SELECT post_id
+                    FROM search_terms
+                    WHERE term IN (%s)
+                    GROUP BY post_id
+                    HAVING COUNT(DISTINCT term) = ?
+                )
+                """.formatted(placeholders(terms));
+        return Optional.ofNullable(jdbc.queryForObject(sql, Integer.class, args(terms))).orElse(0);
+    }
+
+    private static String placeholders(List<String> terms) {
+        return terms.stream().map(t -> "?").collect(Collectors.joining(","));
+    }
+
+    // слова, их число для HAVING и дальше что передали
+    private static Object[] args(List<String> terms, Object... tail) {
+        Object[] args = new Object[terms.size() + 1 + tail.length];
+        for (int i = 0; i < terms.size(); i++) args[i] = terms.get(i);
+        args[terms.size()] = terms.size();
+        System.arraycopy(tail, 0, args, terms.size() + 1, tail.length);
+        return args;
+    }
+}
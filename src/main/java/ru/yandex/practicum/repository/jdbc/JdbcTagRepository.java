@@ -0,0 +1,67 @@
+package ru.yandex.practicum.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.model.TagCount;
+import ru.yandex.practicum.repository.TagRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Тут все запросы в таблицу tag_counts. Строки с нулём не удаляются (тег может вернуться),
+ * их убирает только {@link #rebuild()}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JdbcTagRepository implements TagRepository {
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void apply(Map<String, Integer> deltas) {
+        // по алфавиту: параллельные записи берут блокировки строк в одном порядке и не встают в deadlock
+        new TreeMap<>(deltas).forEach((tag, delta) -> {
+            if (delta == 0) return;
+            if (add(tag, delta) || delta < 0) return; // убавлять у тега без строки нечего
+            try {
+                jdbc.update("INSERT INTO tag_counts (tag, post_count) VALUES (?, ?)", tag, delta);
+            } catch (DuplicateKeyException e) {
+                // тот же новый тег одновременно добавили в другой пост — строка уже есть
+                add(tag, delta);
+            }
+        });
+    }
+
+    private boolean add(String tag, int delta) {
+        return jdbc.update("UPDATE tag_counts SET post_count = GREATEST(post_count + ?, 0) WHERE tag = ?",
+                delta, tag) > 0;
+    }
+
+    @Override
+    public List<TagCount> findTop(int limit) {
+        // первые limit строк индекса (post_count DESC, tag) — без сортировки всей таблицы
+        var sql = """
+                SELECT tag, post_count
+                FROM tag_counts
+                WHERE post_count > 0
+                ORDER BY post_count DESC, tag
+                LIMIT ?
+                """;
+        return jdbc.query(sql, (rs, rowNum) -> new TagCount(rs.getString("tag"), rs.getInt("post_count")), limit);
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        jdbc.update("DELETE FROM tag_counts");
+        return jdbc.update("""
+                INSERT INTO tag_counts (tag, post_count)
+                SELECT tag, COUNT(*) FROM post_tags GROUP BY tag
+                """);
+    }
+}
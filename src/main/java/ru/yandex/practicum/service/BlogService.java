@@ -1,19 +1,78 @@
 package ru.yandex.practicum.service;
 
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.FeedPage;
+import ru.yandex.practicum.model.FeedView;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.model.ImageUpload;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostField;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.model.TagCount;
+import ru.yandex.practicum.model.TagQuery;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface BlogService {
-    // Лента
-    List<Post> findFeed(String tag, int pageNumber, int pageSize);
-    int countFeed(String tag);
+    // Лента, отфильтрованная запросом по тегам
+    List<PostSummary> findFeed(TagQuery query, int pageNumber, int pageSize);
+    int countFeed(TagQuery query);
+    FeedPage findFeedAfter(TagQuery query, FeedCursor after, int pageSize);
+    FeedPage findFeedBefore(TagQuery query, FeedCursor before, int pageSize);
+
+    // Для API: страница после курсора (null — первая) только с нужными полями, мимо кэша страниц;
+    // id и дата есть всегда — на них держится курсор
+    FeedPage findFeedAfter(TagQuery query, FeedCursor after, int pageSize, Set<PostField> fields);
+
+    // То же по строке поиска: "java", "java,spring" (все), "java|spring" (любой), "spr*" (префикс)
+    default List<PostSummary> findFeed(String search, int pageNumber, int pageSize) {
+        return findFeed(TagQuery.parse(search), pageNumber, pageSize);
+    }
+
+    default int countFeed(String search) {
+        return countFeed(TagQuery.parse(search));
+    }
+
+    default FeedPage findFeedAfter(String search, FeedCursor after, int pageSize) {
+        return findFeedAfter(TagQuery.parse(search), after, pageSize);
+    }
+
+    default FeedPage findFeedBefore(String search, FeedCursor before, int pageSize) {
+        return findFeedBefore(TagQuery.parse(search), before, pageSize);
+    }
+
+    // Страница ленты, которая читается из БД порциями по chunkSize постов по мере обхода — для больших страниц,
+    // которые отрисовываются потоком. Без кэша страниц: каждый обход заново читает БД
+    Iterable<PostSummary> streamFeed(TagQuery query, int pageNumber, int pageSize, int chunkSize);
+
+    default Iterable<PostSummary> streamFeed(String search, int pageNumber, int pageSize, int chunkSize) {
+        return streamFeed(TagQuery.parse(search), pageNumber, pageSize, chunkSize);
+    }
+
+    // Поиск по тексту постов и комментариев: посты со всеми словами запроса, лучшие совпадения выше
+    List<PostSummary> searchPosts(String query, int pageNumber, int pageSize);
+    int countSearch(String query);
+
+    // Самые частые теги с числом постов
+    List<TagCount> findPopularTags(int limit);
+
+    // Страница ленты или поиска целиком: посты, их число и popularTags популярных тегов.
+    // Запросы независимы — при blog.virtual-threads.enabled=true выполняются параллельно
+    FeedView findFeedView(TagQuery query, int pageNumber, int pageSize, int popularTags);
+    FeedView searchView(String query, int pageNumber, int pageSize, int popularTags);
+
+    default FeedView findFeedView(String search, int pageNumber, int pageSize, int popularTags) {
+        return findFeedView(TagQuery.parse(search), pageNumber, pageSize, popularTags);
+    }
 
     // Пост
     Optional<Post> getPost(long id);
-    long createPost(String title, List<String> tags, String text, byte[] imageBytes);
-    void updatePost(long id, String title, List<String> tags, String text, byte[] imageBytes);
+    // image == null — без картинки (при редактировании — оставить прежнюю)
+    long createPost(String title, List<String> tags, String text, ImageUpload image);
+    void updatePost(long id, String title, List<String> tags, String text, ImageUpload image);
     void deletePost(long id);
 
     // Лайк
@@ -25,6 +84,8 @@ public interface BlogService {
     void deleteComment(long postId, long commentId);
 
     // Картинка
-    Optional<byte[]> loadImage(long postId);
+    Optional<ImageMeta> findImageMeta(long postId);
+    Optional<ImageMeta> findThumbnailMeta(long postId);
+    boolean writeImage(ImageMeta image, OutputStream out);
 }
 
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.service;
+
+import java.io.Serial;
+
+// Загрузка не похожа на картинку или слишком большая
+public class InvalidImageException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public InvalidImageException(String message) {
+        super(message);
+    }
+}
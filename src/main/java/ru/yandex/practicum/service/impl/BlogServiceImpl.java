@@ -1,91 +1,309 @@
 package ru.yandex.practicum.service.impl;
 
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.FeedPage;
+import ru.yandex.practicum.model.FeedView;
+import ru.yandex.practicum.model.ImageMeta;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.ImageUpload;
+import ru.yandex.practicum.model.PostField;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.model.SearchTerms;
+import ru.yandex.practicum.model.Snippet;
+import ru.yandex.practicum.model.TagCount;
+import ru.yandex.practicum.model.TagQuery;
+import ru.yandex.practicum.model.Tags;
 import ru.yandex.practicum.repository.CommentRepository;
+import ru.yandex.practicum.repository.ImageStore;
 import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.repository.SearchRepository;
+import ru.yandex.practicum.repository.TagRepository;
 import ru.yandex.practicum.service.BlogService;
 
+import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class BlogServiceImpl implements BlogService {
 
     private final PostRepository posts;
     private final CommentRepository comments;
+    private final PostCache cache;
+    private final LikeBuffer likes;
+    private final ImageStore images;
+    private final ImageCollector imageCollector;
+    private final ImageUploader uploader;
+    private final SearchRepository search;
+    private final TagRepository tags;
+    private final FanOut fanOut;
+    private final FeedCountCache feedCounts = new FeedCountCache();
 
-    public BlogServiceImpl(PostRepository posts, CommentRepository comments) {
+    public BlogServiceImpl(PostRepository posts, CommentRepository comments, PostCache cache, LikeBuffer likes,
+                           ImageStore images, ImageCollector imageCollector, ImageUploader uploader,
+                           SearchRepository search, TagRepository tags, FanOut fanOut) {
         this.posts = posts;
         this.comments = comments;
+        this.cache = cache;
+        this.likes = likes;
+        this.images = images;
+        this.imageCollector = imageCollector;
+        this.uploader = uploader;
+        this.search = search;
+        this.tags = tags;
+        this.fanOut = fanOut;
     }
 
     @Override
-    public List<Post> findFeed(String tag, int pageNumber, int pageSize) {
-        String t = tag == null ? "" : tag.trim();
+    public List<PostSummary> findFeed(TagQuery query, int pageNumber, int pageSize) {
         int page = Math.max(pageNumber, 1);
+        return likes.read(() -> likes.merge(loadFeed(query, page, pageSize)));
+    }
+
+    // в ленте нужны только превью и счётчики комментариев, их заполняет репозиторий;
+    // ключ кэша — каноничная запись запроса, "Java, Spring" и "java,spring" — одна страница
+    private List<PostSummary> loadFeed(TagQuery query, int page, int pageSize) {
         int offset = (page - 1) * pageSize;
+        return cache.getFeed(query.toString(), page, pageSize, () -> posts.findFeed(query, offset, pageSize));
+    }
 
-        var list = posts.findFeed(t, offset, pageSize);
+    @Override
+    public Iterable<PostSummary> streamFeed(TagQuery query, int pageNumber, int pageSize, int chunkSize) {
+        int offset = (Math.max(pageNumber, 1) - 1) * pageSize;
+        int chunk = Math.max(1, Math.min(chunkSize, pageSize));
+        // лайки подмешиваются к каждой порции отдельно, под тем же read-lock, что и у обычной страницы
+        return () -> new FeedChunks((after, n) -> likes.read(() -> likes.merge(after == null
+                ? posts.findFeed(query, offset, n)
+                : posts.findFeedAfter(query, after, n))), pageSize, chunk);
+    }
+
+    @Override
+    public int countFeed(TagQuery query) {
+        // приращениями поддерживаются только числа по одному тегу; составной запрос считаем в БД
+        if (!query.isAllPosts() && !query.isSingleTag()) return posts.countFeed(query);
+        return feedCounts.get(query.singleTag(), () -> posts.countFeed(query));
+    }
+
+    @Override
+    public FeedPage findFeedAfter(TagQuery query, FeedCursor after, int pageSize) {
+        return findFeedAfter(query, after, pageSize, PostField.FEED);
+    }
+
+    @Override
+    public FeedPage findFeedAfter(TagQuery query, FeedCursor after, int pageSize, Set<PostField> fields) {
+        // берём на один пост больше — так узнаём, есть ли следующая страница, без COUNT(*)
+        var list = likes.read(() -> {
+            var read = after == null
+                    ? posts.findFeed(query, 0, pageSize + 1, fields)
+                    : posts.findFeedAfter(query, after, pageSize + 1, fields);
+            return fields.contains(PostField.LIKES_COUNT) ? likes.merge(read) : read;
+        });
+        boolean more = list.size() > pageSize;
+        if (more) list = list.subList(0, pageSize);
 
-        // комментарии
-        for (var p : list) {
-            p.setComments(comments.findByPostId(p.getId()));
+        int page = after == null ? 1 : after.getPage();
+        FeedCursor next = more ? FeedCursor.of(list.get(list.size() - 1), page + 1) : null;
+        FeedCursor prev = page > 2 && !list.isEmpty() ? FeedCursor.of(list.get(0), page - 1) : null;
+        return new FeedPage(list, page, next, prev);
+    }
+
+    @Override
+    public FeedPage findFeedBefore(TagQuery query, FeedCursor before, int pageSize) {
+        var list = likes.read(() -> likes.merge(posts.findFeedBefore(query, before, pageSize + 1)));
+        boolean more = list.size() > pageSize; // лишний пост — самый новый, он в начале
+        if (more) list = list.subList(1, list.size());
+
+        // дошли до начала ленты — это первая страница, как бы ни был помечен курсор
+        int page = more ? Math.max(before.getPage(), 2) : 1;
+        FeedCursor next = list.isEmpty() ? null : FeedCursor.of(list.get(list.size() - 1), page + 1);
+        FeedCursor prev = page > 2 ? FeedCursor.of(list.get(0), page - 1) : null;
+        return new FeedPage(list, page, next, prev);
+    }
+
+    @Override
+    public List<PostSummary> searchPosts(String query, int pageNumber, int pageSize) {
+        List<String> terms = SearchTerms.query(query);
+        int page = Math.max(pageNumber, 1);
+        return likes.read(() -> likes.merge(loadSearch(terms, page, pageSize)));
+    }
+
+    // результаты поиска не кэшируем: запросы почти не повторяются
+    private List<PostSummary> loadSearch(List<String> terms, int page, int pageSize) {
+        List<Long> ids = search.search(terms, (page - 1) * pageSize, pageSize);
+        if (ids.isEmpty()) return List.of();
+
+        try (var scope = fanOut.open()) {
+            var found = scope.fork(() -> posts.findSummaries(ids));
+            var texts = scope.fork(() -> posts.findTexts(ids));
+            scope.join();
+            found.get().forEach(p -> p.setSnippet(Snippet.of(texts.get().get(p.getId()), terms)));
+            return found.get();
         }
+    }
 
-        return list;
+    @Override
+    public int countSearch(String query) {
+        return search.count(SearchTerms.query(query));
     }
 
     @Override
-    public int countFeed(String tag) {
-        String t = tag == null ? "" : tag.trim();
-        return posts.countFeed(t);
+    public List<TagCount> findPopularTags(int limit) {
+        return tags.findTop(limit);
+    }
+
+    @Override
+    public FeedView findFeedView(TagQuery query, int pageNumber, int pageSize, int popularTags) {
+        int page = Math.max(pageNumber, 1);
+        // задачи read-lock лайков не берут (см. FanOut) — его держит этот поток до слияния
+        return likes.read(() -> {
+            try (var scope = fanOut.open()) {
+                var feed = scope.fork(() -> loadFeed(query, page, pageSize));
+                var total = scope.fork(() -> countFeed(query));
+                var top = scope.fork(() -> tags.findTop(popularTags));
+                scope.join();
+                return new FeedView(likes.merge(feed.get()), total.get(), top.get());
+            }
+        });
+    }
+
+    @Override
+    public FeedView searchView(String query, int pageNumber, int pageSize, int popularTags) {
+        List<String> terms = SearchTerms.query(query);
+        int page = Math.max(pageNumber, 1);
+        return likes.read(() -> {
+            try (var scope = fanOut.open()) {
+                var found = scope.fork(() -> loadSearch(terms, page, pageSize));
+                var total = scope.fork(() -> search.count(terms));
+                var top = scope.fork(() -> tags.findTop(popularTags));
+                scope.join();
+                return new FeedView(likes.merge(found.get()), total.get(), top.get());
+            }
+        });
     }
 
     @Override
     public Optional<Post> getPost(long id) {
-        var p = posts.findById(id);
-        p.ifPresent(post -> post.setComments(comments.findByPostId(id)));
-        return p;
+        return likes.read(() -> cache.getPost(id, () -> {
+            // комментарии читаем, не дожидаясь поста: у несуществующего поста их просто нет
+            try (var scope = fanOut.open()) {
+                var post = scope.fork(() -> posts.findById(id));
+                var list = scope.fork(() -> comments.findByPostId(id));
+                scope.join();
+                post.get().ifPresent(p -> {
+                    p.setComments(list.get());
+                    p.setCommentsCount(list.get().size());
+                });
+                return post.get();
+            }
+        }).map(likes::merge));
     }
 
     @Override
-    public long createPost(String title, List<String> tags, String text, byte[] image) {
-        return posts.create(title, tags, text, image);
+    public long createPost(String title, List<String> tags, String text, ImageUpload image) {
+        Map<String, Integer> deltas = new HashMap<>();
+        deltas.put("", 1);
+        Tags.normalize(tags).forEach(t -> deltas.merge(t, 1, Integer::sum));
+
+        try {
+            // картинка пишется и проверяется до записи поста: отклонённая загрузка счётчики не трогает
+            return imageCollector.write(() -> {
+                PostImage stored = uploader.store(image);
+                return withFeedCounts(() -> posts.create(title, tags, text, stored), id -> deltas);
+            });
+        } finally {
+            cache.invalidateFeeds();
+        }
     }
 
     @Override
-    public void updatePost(long id, String title, List<String> tags, String text, byte[] image) {
-        posts.update(id, title, tags, text, image);
+    public void updatePost(long id, String title, List<String> tags, String text, ImageUpload image) {
+        try {
+            // счётчики меняются только у тегов, которые убрали или добавили: разницу считает сама
+            // запись под блокировкой строки, так что параллельные правки не сдвинут их дважды
+            imageCollector.write(() -> {
+                PostImage stored = uploader.store(image);
+                return withFeedCounts(() -> posts.update(id, title, tags, text, stored), Function.identity());
+            });
+        } finally {
+            cache.invalidatePost(id);
+        }
     }
 
     @Override
     public void deletePost(long id) {
-        posts.delete(id);
+        try {
+            // повторное удаление ничего не удаляет и счётчики не трогает
+            withFeedCounts(() -> posts.delete(id), Function.identity());
+        } finally {
+            cache.invalidatePost(id);
+        }
+    }
+
+    // запись, после которой счётчики ленты сдвигаются на deltas от её результата (тег → ±N, "" — вся лента)
+    private <T> T withFeedCounts(Supplier<T> write, Function<T, Map<String, Integer>> deltas) {
+        feedCounts.begin();
+        try {
+            T result = write.get();
+            feedCounts.commit(deltas.apply(result));
+            return result;
+        } catch (RuntimeException e) {
+            feedCounts.abort();
+            throw e;
+        }
     }
 
     @Override
     public void likePost(long id, boolean like) {
-        posts.like(id, like);
+        // в БД уйдёт пачкой; кэш не сбрасываем — чтения сами подмешивают накопленное
+        likes.like(id, like);
     }
 
     @Override
     public long addComment(long postId, String text) {
-        return comments.create(postId, text);
+        try {
+            return comments.create(postId, text);
+        } finally {
+            cache.invalidatePost(postId);
+        }
     }
 
     @Override
     public void updateComment(long postId, long commentId, String text) {
-        comments.update(postId, commentId, text);
+        try {
+            comments.update(postId, commentId, text);
+        } finally {
+            cache.invalidatePost(postId);
+        }
     }
 
     @Override
     public void deleteComment(long postId, long commentId) {
-        comments.delete(postId, commentId);
+        try {
+            comments.delete(postId, commentId);
+        } finally {
+            cache.invalidatePost(postId);
+        }
+    }
+
+    @Override
+    public Optional<ImageMeta> findImageMeta(long postId) {
+        return posts.findImageMeta(postId);
+    }
+
+    @Override
+    public Optional<ImageMeta> findThumbnailMeta(long postId) {
+        return posts.findThumbnailMeta(postId);
     }
 
     @Override
-    public java.util.Optional<byte[]> loadImage(long postId) {
-        return posts.findById(postId).map(Post::getImageData).filter(b -> b != null && b.length > 0);
+    public boolean writeImage(ImageMeta image, OutputStream out) {
+        return images.write(image.getHash(), out);
     }
 }
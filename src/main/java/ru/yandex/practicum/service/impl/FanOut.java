@@ -0,0 +1,237 @@
+package ru.yandex.practicum.service.impl;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.metrics.RequestStats;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Параллельное выполнение независимых запросов одной страницы: лента + число постов + теги,
+ * пост + комментарии. По умолчанию выключено — задачи выполняются по очереди в потоке запроса,
+ * как и раньше. С blog.virtual-threads.enabled=true каждая задача получает свой виртуальный поток:
+ * поток почти ничего не стоит, а ожидание JDBC не держит поток платформы.
+ * <p>
+ * Порядок работы как у StructuredTaskScope.ShutdownOnFailure (в JDK 21 это preview API):
+ * <pre>
+ * try (var scope = fanOut.open()) {
+ *     var a = scope.fork(...);
+ *     var b = scope.fork(...);
+ *     scope.join();               // первая ошибка отменяет остальные задачи и пробрасывается отсюда
+ *     return combine(a.get(), b.get());
+ * }
+ * </pre>
+ * Задачи не должны брать блокировки, которые держит вызывающий поток (например, read-lock
+ * {@link LikeBuffer}): ждущая запись встанет между ними, и все три потока зависнут.
+ * <p>
+ * В других потоках одновременно выполняется не больше max-forks задач: каждая занимает
+ * соединение из пула, и без лимита под нагрузкой запросы упрутся в connection-timeout.
+ * Сверх лимита задача выполняется сразу в вызывающем потоке.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=FanOut")
+public class FanOut implements DisposableBean {
+
+    private final ExecutorService executor; // null — всё в вызывающем потоке
+    private final Semaphore permits;
+    private final AtomicLong forked = new AtomicLong();
+    private final AtomicLong inline = new AtomicLong();
+
+    @Autowired
+    public FanOut(@Value("${blog.virtual-threads.enabled:false}") boolean enabled,
+                  @Value("${blog.virtual-threads.max-forks:${spring.datasource.pool.max-size:10}}") int maxForks) {
+        this(enabled ? Executors.newVirtualThreadPerTaskExecutor() : null, maxForks);
+    }
+
+    private FanOut(ExecutorService executor, int maxForks) {
+        this.executor = executor;
+        this.permits = new Semaphore(Math.max(maxForks, 0));
+    }
+
+    // Для тестов и бенчмарков: задачи в заданном пуле (null — по очереди в вызывающем потоке)
+    public static FanOut on(ExecutorService executor, int maxForks) {
+        return new FanOut(executor, maxForks);
+    }
+
+    public Scope open() {
+        return new Scope();
+    }
+
+    @ManagedAttribute(description = "parallel — задачи в отдельных потоках, sequential — по очереди в потоке запроса")
+    public String getMode() {
+        return executor != null ? "parallel" : "sequential";
+    }
+
+    @ManagedAttribute(description = "Задач, выполненных в отдельном потоке")
+    public long getForked() {
+        return forked.get();
+    }
+
+    @ManagedAttribute(description = "Задач, выполненных в потоке запроса (режим sequential или лимит max-forks)")
+    public long getInline() {
+        return inline.get();
+    }
+
+    @ManagedAttribute(description = "Сколько ещё задач можно запустить в отдельных потоках (из max-forks)")
+    public int getFreeForks() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * Набор задач, который не переживает блок try: при close() незавершённые задачи отменяются,
+     * и close() ждёт, пока их потоки действительно закончат, как StructuredTaskScope.
+     * Один Scope — один поток-владелец, fork/join/close вызываются только из него.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final List<Fork<?>> forks = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private boolean joined;
+
+        /**
+         * Запускает задачу. Результат доступен через возвращённый Supplier после {@link #join()}.
+         * Если отдельного потока нет, задача выполняется сразу, и её ошибка летит отсюда.
+         */
+        public <T> Supplier<T> fork(Supplier<T> task) {
+            if (executor == null || !permits.tryAcquire()) {
+                inline.incrementAndGet();
+                T result = task.get();
+                return () -> result;
+            }
+
+            // SQL задачи засчитывается HTTP-запросу, который её запустил
+            Fork<T> fork = new Fork<>(RequestStats.propagate(task), this::fail);
+            forks.add(fork);
+            forked.incrementAndGet();
+            try {
+                executor.execute(fork.future);
+            } catch (RuntimeException e) {
+                fork.future.cancel(false); // пул остановлен — разрешение вернёт отмена
+                throw e;
+            }
+            return () -> {
+                if (!joined) throw new IllegalStateException("Результат задачи доступен только после join()");
+                return resultOf(fork.future);
+            };
+        }
+
+        /**
+         * Ждёт, пока закончатся все задачи. Если какая-то упала, остальные отменяются
+         * и дорабатывают, а её исключение пробрасывается.
+         */
+        public void join() {
+            try {
+                for (Fork<?> f : forks) f.finished.await();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Прервано ожидание параллельных запросов", e);
+            }
+            Throwable e = failure.get();
+            if (e != null) throw unchecked(e);
+            joined = true;
+        }
+
+        @Override
+        public void close() {
+            cancelAll();
+            // отменённая задача может ещё выполнять JDBC в своём потоке — ждём её, прерывания не теряя
+            boolean interrupted = false;
+            for (Fork<?> f : forks) {
+                while (true) {
+                    try {
+                        f.finished.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) cancelAll();
+        }
+
+        private void cancelAll() {
+            forks.forEach(f -> f.future.cancel(true));
+        }
+    }
+
+    /**
+     * Задача в отдельном потоке. Разрешение max-forks возвращается, только когда тело задачи
+     * действительно закончилось (finally в нём) или когда её отменили, не дав начаться:
+     * FutureTask.done() при cancel(true) вызывается сразу, пока тело ещё может работать.
+     */
+    private final class Fork<T> {
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final FutureTask<T> future;
+
+        Fork(Supplier<T> task, Consumer<Throwable> onFailure) {
+            future = new FutureTask<>(() -> {
+                if (!claimed.compareAndSet(false, true)) return null; // уже отменена
+                try {
+                    return task.get();
+                } catch (RuntimeException | Error e) {
+                    onFailure.accept(e);
+                    throw e;
+                } finally {
+                    release();
+                }
+            }) {
+                @Override
+                protected void done() {
+                    // тело так и не начиналось (и уже не начнётся) — освобождаем за него
+                    if (claimed.compareAndSet(false, true)) release();
+                }
+            };
+        }
+
+        private void release() {
+            permits.release();
+            finished.countDown();
+        }
+    }
+
+    private static <T> T resultOf(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unchecked(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // задачи — Supplier, так что проверяемых исключений в них не бывает
+    private static RuntimeException unchecked(Throwable e) {
+        if (e instanceof RuntimeException r) return r;
+        if (e instanceof Error err) throw err;
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.service.impl;
+
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.PostSummary;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+/**
+ * Страница ленты, которая читается порциями по мере обхода. Первая порция — с начала страницы,
+ * следующие — keyset после последнего прочитанного поста, так что порции стыкуются без пропусков
+ * и повторов, даже если между ними добавили пост. Соединение с БД занято только на время порции,
+ * а не пока страница отрисовывается и уходит клиенту; в памяти — одна порция.
+ */
+final class FeedChunks implements Iterator<PostSummary> {
+
+    // (после какого поста или null — с начала страницы, сколько) → посты
+    private final BiFunction<FeedCursor, Integer, List<PostSummary>> fetch;
+    private final int chunkSize;
+    private int remaining;
+    private Iterator<PostSummary> chunk = Collections.emptyIterator();
+    private PostSummary last;
+    private boolean exhausted;
+
+    FeedChunks(BiFunction<FeedCursor, Integer, List<PostSummary>> fetch, int pageSize, int chunkSize) {
+        this.fetch = fetch;
+        this.remaining = pageSize;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (chunk.hasNext()) return true;
+        if (exhausted || remaining <= 0) return false;
+
+        int n = Math.min(chunkSize, remaining);
+        List<PostSummary> next = fetch.apply(last == null ? null : FeedCursor.of(last, 1), n);
+        exhausted = next.size() < n; // короткая порция — дальше постов нет
+        remaining -= next.size();
+        if (next.isEmpty()) return false;
+        last = next.get(next.size() - 1);
+        chunk = next.iterator();
+        return true;
+    }
+
+    @Override
+    public PostSummary next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return chunk.next();
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Кэш размеров ленты: тег → число постов ("" — вся лента).
+ * Значение один раз считается в БД, дальше поддерживается приращениями при
+ * создании/редактировании/удалении постов, так что чтение — O(1).
+ * <p>
+ * Чтобы загрузка не разошлась с параллельной записью, запись оборачивается в
+ * {@link #begin()} / {@link #commit(Map)}: пока запись идёт или если она успела
+ * завершиться во время подсчёта, посчитанное значение в кэш не кладётся.
+ */
+class FeedCountCache {
+
+    // тегов может быть много — больше этого числа новые ключи не кэшируем
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+    private volatile long version;
+
+    int get(String tag, IntSupplier loader) {
+        Integer cached = counts.get(tag);
+        if (cached != null) return cached;
+
+        long seen = version;
+        boolean quiet = writesInFlight.get() == 0;
+        int loaded = loader.getAsInt();
+        if (quiet) {
+            synchronized (this) {
+                if (writesInFlight.get() == 0 && version == seen && counts.size() < MAX_ENTRIES) {
+                    counts.putIfAbsent(tag, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // перед записью в БД
+    void begin() {
+        writesInFlight.incrementAndGet();
+    }
+
+    // после успешной записи: приращения по тегам, "" — вся лента.
+    // Ушедшее в минус значение — признак рассинхронизации: его не прячем, а перечитываем из БД
+    synchronized void commit(Map<String, Integer> deltas) {
+        try {
+            deltas.forEach((tag, delta) -> {
+                if (delta != 0) counts.computeIfPresent(tag, (k, v) -> v + delta < 0 ? null : v + delta);
+            });
+            version++;
+        } finally {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    // запись упала — неизвестно, что дошло до БД, поэтому сбрасываем всё
+    synchronized void abort() {
+        try {
+            counts.clear();
+            version++;
+        } finally {
+            writesInFlight.decrementAndGet();
+        }
+    }
+}
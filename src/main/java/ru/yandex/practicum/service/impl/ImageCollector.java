@@ -0,0 +1,77 @@
+package ru.yandex.practicum.service.impl;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.ImageRepository;
+import ru.yandex.practicum.repository.ImageStore;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Сборка мусора в ImageStore: удаляет файлы, на которые не ссылается ни один пост
+ * (ref_count = 0 в images), и файлы без строки в images — остатки загрузок, чья транзакция не прошла.
+ * <p>
+ * Загрузка сначала кладёт файл (а тот же файл может уже лежать — дедупликация), потом
+ * в транзакции добавляет ссылку. Чтобы сборщик не удалил файл между этими шагами, загрузки
+ * идут под read-lock через {@link #write(Supplier)}, а сборка — под write-lock.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=ImageCollector")
+public class ImageCollector {
+
+    private final ImageRepository images;
+    private final ImageStore store;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong removed = new AtomicLong();
+
+    public ImageCollector(ImageRepository images, ImageStore store) {
+        this.images = images;
+        this.store = store;
+    }
+
+    // Запись, которая кладёт файлы в ImageStore и ссылается на них из БД
+    public <T> T write(Supplier<T> writer) {
+        lock.readLock().lock();
+        try {
+            return writer.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blog.images.gc-interval-ms:600000}")
+    @ManagedOperation(description = "Удалить картинки, на которые не ссылается ни один пост")
+    public int collect() {
+        lock.writeLock().lock();
+        try {
+            int count = 0;
+            for (String hash : images.findUnreferenced()) {
+                if (images.deleteUnreferenced(hash) && store.delete(hash)) count++;
+            }
+
+            Set<String> known = new HashSet<>(images.findAllHashes());
+            for (String hash : store.hashes()) {
+                if (!known.contains(hash) && store.delete(hash)) count++;
+            }
+
+            removed.addAndGet(count);
+            return count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Удалено файлов картинок с момента запуска")
+    public long getRemoved() {
+        return removed.get();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.service.impl;
+
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.repository.ImageStore;
+import ru.yandex.practicum.repository.PostRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Перенос картинок, оставшихся BLOB-ами в posts.image_data, в ImageStore.
+ * Запускается после инициализации схемы и по JMX; повторный запуск безопасен —
+ * перенесённые посты уже без image_data, одинаковые байты ложатся в один файл.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=ImageMigration")
+public class ImageMigration {
+
+    private final PostRepository posts;
+    private final ImageStore store;
+    private final ImageCollector collector;
+
+    public ImageMigration(PostRepository posts, ImageStore store, ImageCollector collector) {
+        this.posts = posts;
+        this.store = store;
+        this.collector = collector;
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onStartup(ContextRefreshedEvent event) {
+        migrate();
+    }
+
+    @ManagedOperation(description = "Перенести картинки из posts.image_data в ImageStore")
+    public int migrate() {
+        int moved = 0;
+        // по одному посту: в памяти одновременно только одна картинка
+        for (long id : posts.findIdsWithImageData()) {
+            boolean done = collector.write(() -> posts.findImageData(id).map(bytes -> {
+                String hash = store.put(bytes);
+                posts.moveImageData(id, new ImageMeta(hash, bytes.length, LocalDateTime.now())
+                        .withFormat(ImageSniffer.probe(bytes))); // не картинка останется без типа
+                return true;
+            }).orElse(false));
+            if (done) moved++;
+        }
+        return moved;
+    }
+}
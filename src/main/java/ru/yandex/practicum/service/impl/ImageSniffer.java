@@ -0,0 +1,125 @@
+package ru.yandex.practicum.service.impl;
+
+import ru.yandex.practicum.model.ImageFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Определение формата картинки по сигнатуре в первых байтах (заявленному типу из запроса не верим).
+ * Размеры читаются из заголовка формата, сама картинка не декодируется.
+ */
+final class ImageSniffer {
+
+    // столько байт от начала файла хватает и на сигнатуру, и на размеры PNG/GIF/WebP
+    static final int HEAD_BYTES = 30;
+
+    private ImageSniffer() {
+    }
+
+    // MIME-тип по первым байтам; null — не картинка (или формат, который мы не принимаем)
+    static String contentType(byte[] head) {
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return "image/png";
+        if (ascii(head, 0, "GIF87a") || ascii(head, 0, "GIF89a")) return "image/gif";
+        if (ascii(head, 0, "RIFF") && ascii(head, 8, "WEBP")) return "image/webp";
+        return null;
+    }
+
+    static ImageFormat probe(byte[] bytes) {
+        try {
+            return probe(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Формат и размеры; null — не картинка. Поток читается с начала и не закрывается.
+    static ImageFormat probe(InputStream in) throws IOException {
+        byte[] head = in.readNBytes(HEAD_BYTES);
+        String type = contentType(head);
+        if (type == null) return null;
+        int[] size = switch (type) {
+            case "image/png" -> head.length >= 24 ? new int[]{be32(head, 16), be32(head, 20)} : null;
+            case "image/gif" -> head.length >= 10 ? new int[]{le16(head, 6), le16(head, 8)} : null;
+            case "image/webp" -> webpSize(head);
+            default -> jpegSize(new SequenceInputStream(new ByteArrayInputStream(head), in));
+        };
+        return size == null || size[0] <= 0 || size[1] <= 0
+                ? new ImageFormat(type, null, null)
+                : new ImageFormat(type, size[0], size[1]);
+    }
+
+    private static int[] webpSize(byte[] h) {
+        if (h.length < 30) return null;
+        if (ascii(h, 12, "VP8 ")) return new int[]{le16(h, 26) & 0x3FFF, le16(h, 28) & 0x3FFF};
+        if (ascii(h, 12, "VP8L")) {
+            int bits = (h[21] & 0xFF) | (h[22] & 0xFF) << 8 | (h[23] & 0xFF) << 16 | (h[24] & 0xFF) << 24;
+            return new int[]{(bits & 0x3FFF) + 1, (bits >>> 14 & 0x3FFF) + 1};
+        }
+        if (ascii(h, 12, "VP8X")) return new int[]{le24(h, 24) + 1, le24(h, 27) + 1};
+        return null;
+    }
+
+    // Идём по сегментам JPEG до SOFn, содержимое остальных сегментов пропускаем
+    private static int[] jpegSize(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            in.skipNBytes(2); // SOI
+            while (true) {
+                int b = in.readUnsignedByte();
+                if (b != 0xFF) return null;
+                int marker = in.readUnsignedByte();
+                while (marker == 0xFF) marker = in.readUnsignedByte(); // заполнители
+                if (marker == 0x01 || marker >= 0xD0 && marker <= 0xD8) continue; // без длины
+                if (marker == 0xD9 || marker == 0xDA) return null; // дошли до данных, а SOF не было
+                int length = in.readUnsignedShort();
+                boolean sof = marker >= 0xC0 && marker <= 0xCF
+                        && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+                if (sof) {
+                    in.readUnsignedByte(); // точность
+                    int height = in.readUnsignedShort();
+                    int width = in.readUnsignedShort();
+                    return new int[]{width, height};
+                }
+                in.skipNBytes(length - 2);
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] b, int off, int... sig) {
+        if (b.length < off + sig.length) return false;
+        for (int i = 0; i < sig.length; i++) {
+            if ((b[off + i] & 0xFF) != sig[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean ascii(byte[] b, int off, String s) {
+        byte[] sig = s.getBytes(StandardCharsets.US_ASCII);
+        if (b.length < off + sig.length) return false;
+        for (int i = 0; i < sig.length; i++) {
+            if (b[off + i] != sig[i]) return false;
+        }
+        return true;
+    }
+
+    private static int be32(byte[] b, int off) {
+        return (b[off] & 0xFF) << 24 | (b[off + 1] & 0xFF) << 16 | (b[off + 2] & 0xFF) << 8 | (b[off + 3] & 0xFF);
+    }
+
+    private static int le16(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8;
+    }
+
+    private static int le24(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16;
+    }
+}
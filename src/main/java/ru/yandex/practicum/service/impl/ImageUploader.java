@@ -0,0 +1,116 @@
+package ru.yandex.practicum.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.model.ImageUpload;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.repository.ImageStore;
+import ru.yandex.practicum.service.InvalidImageException;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Приём картинки: проверка формата по сигнатуре, потоковая запись в ImageStore и уменьшенная копия для ленты.
+ * Байты идут из запроса в файл хранилища через буфер фиксированного размера; размер
+ * проверяется по ходу чтения, так что слишком большая загрузка обрывается, не дочитанная до конца.
+ */
+@Component
+public class ImageUploader {
+
+    private final ImageStore store;
+    private final Thumbnailer thumbnailer;
+    private final long maxBytes;
+
+    public ImageUploader(ImageStore store, Thumbnailer thumbnailer,
+                         @Value("${blog.images.max-bytes:15242880}") long maxBytes) {
+        this.store = store;
+        this.thumbnailer = thumbnailer;
+        this.maxBytes = maxBytes;
+    }
+
+    // null — картинки нет (или она пустая)
+    public PostImage store(ImageUpload upload) {
+        if (upload == null) return null;
+        checkContentType(upload.getContentType());
+
+        ImageMeta original;
+        try (InputStream in = new BufferedInputStream(
+                new LimitedInputStream(upload.getSource().getInputStream(), maxBytes))) {
+            // сигнатуру смотрим до записи: не картинка не попадает ни в хранилище, ни в БД
+            in.mark(ImageSniffer.HEAD_BYTES);
+            byte[] head = in.readNBytes(ImageSniffer.HEAD_BYTES);
+            if (head.length == 0) return null;
+            if (ImageSniffer.contentType(head) == null) throw new InvalidImageException("Unsupported image format");
+            in.reset();
+            original = store.put(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // размеры — из заголовка уже сохранённого файла (у JPEG он бывает далеко от начала)
+        original = original.withFormat(store.open(original.getHash()).map(in -> {
+            try (in) {
+                return ImageSniffer.probe(in);
+            } catch (IOException e) {
+                return null;
+            }
+        }).orElse(null));
+
+        // копию для ленты строим из уже сохранённого файла, тоже потоком
+        long originalSize = original.getSize();
+        if (!thumbnailer.needed(original.getWidth(), original.getHeight())) return new PostImage(original, null);
+        byte[] thumb = store.open(original.getHash()).map(in -> {
+            try (in) {
+                return thumbnailer.thumbnail(in, originalSize);
+            } catch (IOException e) {
+                return null;
+            }
+        }).orElse(null);
+        return new PostImage(original, thumb == null ? null
+                : new ImageMeta(store.put(thumb), thumb.length, original.getUpdatedAt())
+                        .withFormat(ImageSniffer.probe(thumb)));
+    }
+
+    // заявленный тип — только первая проверка; без заголовка или с octet-stream пропускаем
+    private static void checkContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) return;
+        String type = contentType.trim().toLowerCase();
+        if (!type.startsWith("image/") && !type.startsWith("application/octet-stream")) {
+            throw new InvalidImageException("Not an image: " + contentType);
+        }
+    }
+
+    // Обрывает чтение, как только прочитано больше limit байт
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        private void count(int n) {
+            count += n;
+            if (count > limit) throw new InvalidImageException("Image is larger than " + limit + " bytes");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.service.impl;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.LikeDelta;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.repository.PostRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind для лайков: клики копятся в памяти по id поста и пачкой уходят в БД
+ * по расписанию и при остановке приложения, вместо UPDATE на каждый клик.
+ * <p>
+ * Чтения подмешивают накопленное, так что лайк виден сразу. Под write-lock сброс только
+ * перекладывает накопленное в отдельную пачку (чтения подмешивают и её) — быстро и без обращений к БД.
+ * Пачка пишется в БД уже без блокировки, чтения в это время идут. После записи пачка убирается,
+ * а кэш постов сбрасывается; чтение, попавшее ровно на этот момент, может один раз показать лайк
+ * дважды или ни разу, но в кэш такое не попадает (кэш хранит посты из БД без подмешанного).
+ * Запись не удалась — под write-lock пачка возвращается в буфер перед новыми кликами.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=LikeBuffer")
+public class LikeBuffer implements DisposableBean {
+
+    private final PostRepository posts;
+    private final PostCache cache;
+
+    private final Map<Long, LikeDelta> pending = new ConcurrentHashMap<>();
+    private volatile Map<Long, LikeDelta> flushing = Map.of(); // пачка, которая сейчас пишется в БД
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public LikeBuffer(PostRepository posts, PostCache cache) {
+        this.posts = posts;
+        this.cache = cache;
+    }
+
+    public void like(long postId, boolean likeUp) {
+        read(() -> pending.compute(postId, (id, d) -> (d == null ? LikeDelta.none(id) : d).then(likeUp)));
+    }
+
+    // Чтение постов (из кэша или БД) и подмешивание буфера — атомарно относительно сброса
+    public <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Копия поста с учётом ещё не записанных лайков; сам пост (он может лежать в кэше) не трогаем
+    public Post merge(Post post) {
+        LikeDelta d = delta(post.getId());
+        return d == null ? post : post.toBuilder().likesCount(d.applyTo(post.getLikesCount())).build();
+    }
+
+    public PostSummary merge(PostSummary post) {
+        LikeDelta d = delta(post.getId());
+        return d == null ? post : post.toBuilder().likesCount(d.applyTo(post.getLikesCount())).build();
+    }
+
+    public List<PostSummary> merge(List<PostSummary> list) {
+        if (pending.isEmpty() && flushing.isEmpty()) return list;
+        return list.stream().map(this::merge).toList();
+    }
+
+    // незаписанное по посту: сначала пачка в полёте, потом клики после неё
+    private LikeDelta delta(long postId) {
+        LikeDelta inFlight = flushing.get(postId);
+        LikeDelta d = pending.get(postId);
+        if (inFlight == null) return d;
+        return d == null ? inFlight : inFlight.andThen(d);
+    }
+
+    @Scheduled(fixedDelayString = "${blog.likes.flush-interval-ms:1000}")
+    @ManagedOperation(description = "Записать накопленные лайки в БД")
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+        Map<Long, LikeDelta> batch;
+        lock.writeLock().lock();
+        try {
+            batch = Map.copyOf(pending);
+            flushing = batch;
+            pending.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            posts.applyLikes(batch.values());
+        } catch (RuntimeException e) {
+            // пачка не записана (applyLikes — одна транзакция): возвращаем её перед кликами, пришедшими после
+            lock.writeLock().lock();
+            try {
+                batch.forEach((id, d) -> pending.merge(id, d, (newer, failed) -> failed.andThen(newer)));
+                flushing = Map.of();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        flushing = Map.of();
+        cache.invalidatePosts(batch.keySet());
+    }
+
+    // при остановке контекста — последний сброс, пока пул соединений ещё жив
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    @ManagedAttribute(description = "Постов с незаписанными лайками")
+    public int getPendingPosts() {
+        Map<Long, LikeDelta> inFlight = flushing;
+        if (inFlight.isEmpty()) return pending.size();
+        return (int) Stream.concat(inFlight.keySet().stream(), pending.keySet().stream()).distinct().count();
+    }
+}
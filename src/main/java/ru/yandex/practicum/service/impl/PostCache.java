@@ -0,0 +1,133 @@
+package ru.yandex.practicum.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostSummary;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through кэш постов и страниц ленты в памяти.
+ * Размер ограничен суммарным «весом» (примерный размер в байтах, включая картинку, если она загружена) и TTL.
+ * <p>
+ * Свежесть после записи:
+ * <ul>
+ *     <li>пост — {@link #invalidatePost(long)} ждёт завершения загрузки того же id, которая могла
+ *     прочитать старые данные, и выкидывает её результат; следующая загрузка идёт уже после записи;</li>
+ *     <li>лента — ключ страницы содержит поколение, любая запись его увеличивает, так что после
+ *     записи старые страницы больше не читаются, даже если их догрузил параллельный запрос.</li>
+ * </ul>
+ * Сами записи в БД делает вызывающий код, кэш сбрасывается после них.
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=PostCache")
+public class PostCache {
+
+    private record FeedKey(long generation, String tag, int page, int size) {
+    }
+
+    private final Cache<Long, Post> posts;
+    private final Cache<FeedKey, List<PostSummary>> feeds;
+    private final AtomicLong feedGeneration = new AtomicLong();
+
+    public PostCache(@Value("${blog.cache.max-weight-bytes:33554432}") long maxWeightBytes,
+                     @Value("${blog.cache.ttl-seconds:60}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.posts = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes / 2)
+                .weigher((Long id, Post p) -> weigh(p))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.feeds = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes / 2)
+                .weigher((FeedKey k, List<PostSummary> page) -> page.stream().mapToInt(PostCache::weigh).sum())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Отсутствующие посты не кэшируем
+    public Optional<Post> getPost(long id, Supplier<Optional<Post>> loader) {
+        return Optional.ofNullable(posts.get(id, k -> loader.get().orElse(null)));
+    }
+
+    public List<PostSummary> getFeed(String tag, int page, int size, Supplier<List<PostSummary>> loader) {
+        var key = new FeedKey(feedGeneration.get(), tag, page, size);
+        return feeds.get(key, k -> List.copyOf(loader.get()));
+    }
+
+    // Пост поменялся (текст, лайки, комментарии) — он сам и все страницы ленты
+    public void invalidatePost(long id) {
+        posts.invalidate(id);
+        invalidateFeeds();
+    }
+
+    public void invalidatePosts(Collection<Long> ids) {
+        posts.invalidateAll(ids);
+        invalidateFeeds();
+    }
+
+    // Поменялся состав ленты (новый пост)
+    public void invalidateFeeds() {
+        feedGeneration.incrementAndGet();
+        feeds.invalidateAll();
+    }
+
+    @ManagedOperation(description = "Сбросить кэш целиком")
+    public void invalidateAll() {
+        posts.invalidateAll();
+        invalidateFeeds();
+    }
+
+    @ManagedAttribute(description = "Попадания в кэш (посты + лента)")
+    public long getHits() {
+        return posts.stats().hitCount() + feeds.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Промахи кэша (посты + лента)")
+    public long getMisses() {
+        return posts.stats().missCount() + feeds.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Вытеснения по размеру/TTL (посты + лента)")
+    public long getEvictions() {
+        return posts.stats().evictionCount() + feeds.stats().evictionCount();
+    }
+
+    @ManagedAttribute(description = "Записей в кэше (посты + страницы ленты)")
+    public long getSize() {
+        return posts.estimatedSize() + feeds.estimatedSize();
+    }
+
+    // Примерный размер поста в байтах: строки в UTF-16, картинка как есть
+    static int weigh(Post p) {
+        long w = 64L + 2L * (length(p.getTitle()) + length(p.getText()));
+        for (String tag : p.getTags()) w += 40 + 2L * tag.length();
+        if (p.getImageData() != null) w += p.getImageData().length;
+        for (Comment c : p.getComments()) w += 48 + 2L * length(c.getText());
+        return (int) Math.min(w, Integer.MAX_VALUE);
+    }
+
+    static int weigh(PostSummary p) {
+        long w = 64L + 2L * (length(p.getTitle()) + length(p.getPreview()));
+        for (String tag : p.getTags()) w += 40 + 2L * tag.length();
+        return (int) Math.min(w, Integer.MAX_VALUE);
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.service.impl;
+
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.TagRepository;
+
+/**
+ * Починка счётчиков тегов по JMX. В обычной работе tag_counts сдвигается приращениями
+ * при записи поста; пересчёт нужен, только если счётчики разошлись с post_tags
+ * (правка БД руками, восстановление из бэкапа).
+ */
+@Component
+@ManagedResource(objectName = "myblog:type=TagCounts")
+public class TagCounts {
+
+    private final TagRepository tags;
+
+    public TagCounts(TagRepository tags) {
+        this.tags = tags;
+    }
+
+    @ManagedOperation(description = "Пересчитать tag_counts из post_tags")
+    public int rebuild() {
+        return tags.rebuild();
+    }
+}
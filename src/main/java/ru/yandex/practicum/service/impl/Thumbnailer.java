@@ -0,0 +1,110 @@
+package ru.yandex.practicum.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Уменьшенные копии картинок для ленты (javax.imageio).
+ * Большая картинка декодируется сразу с прореживанием (subsampling) — полноразмерный растр
+ * в память не поднимается, — а потом вписывается в height × maxWidth сглаживающим масштабированием.
+ * Прореживание считается по обеим сторонам: широкая панорама не выше нужного тоже уменьшается.
+ * Картинки больше maxPixels не уменьшаются вовсе — в ленте остаётся оригинал.
+ */
+@Component
+public class Thumbnailer {
+
+    private final int height;
+    private final int maxWidth;
+    private final long maxPixels;
+
+    // по умолчанию вдвое больше, чем картинка в ленте (300px), — чтобы не мылилось на HiDPI-экранах
+    public Thumbnailer(@Value("${blog.images.thumbnail-height:600}") int height,
+                       @Value("${blog.images.thumbnail-max-width:1200}") int maxWidth,
+                       @Value("${blog.images.thumbnail-max-pixels:50000000}") long maxPixels) {
+        this.height = height;
+        this.maxWidth = maxWidth;
+        this.maxPixels = maxPixels;
+    }
+
+    // размеры известны из заголовка: картинка и так вписывается или слишком велика — файл можно даже не открывать
+    public boolean needed(Integer sourceWidth, Integer sourceHeight) {
+        if (sourceWidth == null || sourceHeight == null) return true;
+        return !fits(sourceWidth, sourceHeight) && withinBudget(sourceWidth, sourceHeight);
+    }
+
+    /**
+     * Байты уменьшенной копии или null, если уменьшать нечего: картинка и так вписывается
+     * или больше maxPixels, формат не распознан или копия вышла не меньше оригинала.
+     */
+    public byte[] thumbnail(InputStream original, long originalSize) {
+        try {
+            BufferedImage source = read(original);
+            if (source == null) return null;
+
+            double scale = Math.min((double) height / source.getHeight(), (double) maxWidth / source.getWidth());
+            int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+            int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+            boolean alpha = source.getColorModel().hasAlpha();
+            BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = target.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+            } finally {
+                g.dispose();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(target, alpha ? "png" : "jpeg", out)) return null;
+            return out.size() < originalSize ? out.toByteArray() : null;
+        } catch (IOException | RuntimeException e) {
+            // битая или экзотическая картинка — в ленте покажем оригинал
+            return null;
+        }
+    }
+
+    // Декодирует с шагом прореживания, при котором обе стороны остаются не меньше, чем у копии;
+    // null — формат не распознан, картинка и так вписывается или больше maxPixels
+    private BufferedImage read(InputStream original) throws IOException {
+        // читаем только вперёд, уже разобранное не кэшируется — в памяти не весь файл, а буфер декодера
+        try (ImageInputStream in = new MemoryCacheImageInputStream(original)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if (fits(sourceWidth, sourceHeight) || !withinBudget(sourceWidth, sourceHeight)) return null;
+                int step = Math.max(1, Math.max(sourceHeight / height, sourceWidth / maxWidth));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private boolean fits(int sourceWidth, int sourceHeight) {
+        return sourceHeight <= height && sourceWidth <= maxWidth;
+    }
+
+    private boolean withinBudget(int sourceWidth, int sourceHeight) {
+        return (long) sourceWidth * sourceHeight <= maxPixels;
+    }
+}
@@ -1,18 +1,55 @@
+DROP TABLE IF EXISTS search_terms;
 DROP TABLE IF EXISTS comments;
+DROP TABLE IF EXISTS post_tags;
+DROP TABLE IF EXISTS tag_counts;
 DROP TABLE IF EXISTS posts;
+DROP TABLE IF EXISTS images;
 
 -- Посты
 CREATE TABLE posts (
     id IDENTITY PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
     text CLOB NOT NULL,
+    preview VARCHAR(4000) NOT NULL DEFAULT '', -- первые строки текста для ленты
     tags_csv VARCHAR(512) NOT NULL DEFAULT '',
-    image_data BLOB,
+    image_data BLOB,                 -- устарело: картинки лежат в ImageStore, остатки переносит ImageMigration
+    image_hash VARCHAR(64),          -- SHA-256 картинки: ключ в ImageStore и ETag
+    image_size BIGINT,
+    image_updated_at TIMESTAMP,      -- для Last-Modified
+    image_type VARCHAR(32),          -- MIME-тип по сигнатуре файла (NULL — не распознан)
+    image_width INT,
+    image_height INT,
+    thumb_hash VARCHAR(64),          -- уменьшенная копия для ленты (NULL — в ленте оригинал)
+    thumb_size BIGINT,
+    thumb_type VARCHAR(32),
+    thumb_width INT,
+    thumb_height INT,
     likes_count INT NOT NULL DEFAULT 0,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
-CREATE INDEX idx_posts_created_at ON posts(created_at DESC);
+CREATE INDEX idx_posts_created_at ON posts(created_at DESC, id DESC);
+
+-- Теги постов (нормализованные, в нижнем регистре). created_at продублирован из posts,
+-- чтобы лента по тегу читалась диапазоном по индексу (tag, created_at) без сортировки
+CREATE TABLE post_tags (
+    post_id BIGINT NOT NULL,
+    tag VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (post_id, tag),
+    CONSTRAINT fk_post_tags_post FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_post_tags_tag_created_at ON post_tags(tag, created_at DESC, post_id DESC);
+
+-- Число постов по тегу — для облака популярных тегов без подсчёта по post_tags.
+-- Сдвигается при записи поста по разнице старых и новых тегов; пересчёт — TagCounts.rebuild (JMX)
+CREATE TABLE tag_counts (
+    tag VARCHAR(255) PRIMARY KEY,
+    post_count INT NOT NULL
+);
+
+CREATE INDEX idx_tag_counts_post_count ON tag_counts(post_count DESC, tag);
 
 -- Комментарии
 CREATE TABLE comments (
@@ -24,3 +61,26 @@ CREATE TABLE comments (
 );
 
 CREATE INDEX idx_comments_post ON comments(post_id);
+
+-- Обратный индекс для поиска по тексту: слово → посты, где оно встречается, и его вес в посте.
+-- source: 'P' — заголовок и текст поста, 'C' — комментарии; каждая часть переписывается отдельно
+CREATE TABLE search_terms (
+    term VARCHAR(64) NOT NULL,
+    post_id BIGINT NOT NULL,
+    source CHAR(1) NOT NULL,
+    weight INT NOT NULL,
+    PRIMARY KEY (term, post_id, source),
+    CONSTRAINT fk_search_terms_post FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_search_terms_post ON search_terms(post_id, source);
+
+-- Картинки в ImageStore и число постов, которые на них ссылаются.
+-- Файлы с ref_count = 0 удаляет ImageCollector
+CREATE TABLE images (
+    hash VARCHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_images_ref_count ON images(ref_count);
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.metrics.PoolMetrics;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный прогон пула: короткие запросы из нескольких потоков. Проверяем, что пул
+ * отработал корректно — без таймаутов и в своих размерах; сравнение скорости
+ * с DriverManagerDataSource — в PoolBenchmark (профиль jmh).
+ */
+class ConnectionPoolLoadIT {
+
+    private static final String URL = "jdbc:h2:mem:poolload;DB_CLOSE_DELAY=-1";
+    private static final int THREADS = 16;
+    private static final int QUERIES_PER_THREAD = 500;
+
+    @Test
+    void pooled_dataSource_handles_concurrent_load() throws Exception {
+        PoolMetrics metrics = new PoolMetrics();
+        var pooled = (com.zaxxer.hikari.HikariDataSource) new DataSourceConfiguration()
+                .dataSource(URL, "sa", "", 2, 8, 3000, 1000, metrics);
+        try {
+            run(pooled);
+
+            assertThat(metrics.getAcquireCount()).isGreaterThanOrEqualTo((long) THREADS * QUERIES_PER_THREAD);
+            assertThat(metrics.getTimeouts()).isZero();
+            assertThat(metrics.getTotal()).isLessThanOrEqualTo(8);
+            assertThat(metrics.getActive()).isZero();
+            assertThat(metrics.getWaiting()).isZero();
+        } finally {
+            pooled.close();
+        }
+    }
+
+    private static void run(DataSource ds) throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.queryForObject("SELECT 1", Integer.class); // прогрев
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < QUERIES_PER_THREAD; i++) {
+                        jdbc.queryForObject("SELECT 1", Integer.class);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
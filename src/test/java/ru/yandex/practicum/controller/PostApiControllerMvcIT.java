@@ -0,0 +1,188 @@
+package ru.yandex.practicum.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.ContextHierarchy;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import ru.yandex.practicum.WebConfiguration;
+import ru.yandex.practicum.configuration.ThymeleafConfiguration;
+import ru.yandex.practicum.testconfig.TestDbConfig;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@WebAppConfiguration
+@ExtendWith(SpringExtension.class)
+@ContextHierarchy({
+        @ContextConfiguration(classes = { TestDbConfig.class }),
+        @ContextConfiguration(classes = {
+                WebConfiguration.class,
+                ThymeleafConfiguration.class
+        })
+})
+class PostApiControllerMvcIT {
+
+    private static final Pattern NEXT = Pattern.compile("\"next\":\"([^\"]+)\"");
+
+    @Autowired WebApplicationContext wac;
+
+    MockMvc mvc;
+
+    @BeforeEach
+    void setup() {
+        mvc = webAppContextSetup(wac).build();
+    }
+
+    // лента курсором и только с запрошенными полями: превью и комментарии даже не читаются из БД
+    @Test
+    void feed_cursorPaging_withSparseFields() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            create("{\"title\":\"API " + i + "\",\"tags\":[\"api-feed\"],\"text\":\"длинный текст\"}");
+        }
+
+        String first = mvc.perform(get("/api/posts")
+                        .param("search", "api-feed").param("size", "2").param("fields", "id,title"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertThat(first)
+                .matches("\\{\"posts\":\\[\\{\"id\":\\d+,\"title\":\"API 3\"},\\{\"id\":\\d+,\"title\":\"API 2\"}],\"next\":\"[^\"]+\"}");
+
+        Matcher next = NEXT.matcher(first);
+        assertThat(next.find()).isTrue();
+        mvc.perform(get("/api/posts")
+                        .param("search", "api-feed").param("size", "2").param("fields", "id,title")
+                        .param("after", next.group(1)))
+                .andExpect(content().string(containsString("\"title\":\"API 1\"")))
+                .andExpect(content().string(endsWith("],\"next\":null}")));
+
+        // в SQL ленты нет ни превью, ни подсчёта комментариев
+        String metrics = mvc.perform(get("/metrics")).andReturn().getResponse().getContentAsString();
+        assertThat(metrics).contains("blog_sql_calls_total{sql=\"SELECT p.id, p.created_at, p.title FROM post_tags t");
+
+        mvc.perform(get("/api/posts").param("fields", "id,text"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("text")));
+    }
+
+    // ETag → 304 на повторный запрос; большой ответ сжат gzip; картинка — только ссылкой
+    @Test
+    void post_etag_gzip_andImageAsLink() throws Exception {
+        String text = "Абзац про API. ".repeat(200);
+        String loc = mvc.perform(multipart("/posts")
+                        .file(new MockMultipartFile("image", "a.png", "image/png", png()))
+                        .param("title", "С картинкой")
+                        .param("tags", "api")
+                        .param("text", text))
+                .andReturn().getResponse().getRedirectedUrl();
+        long id = Long.parseLong(loc.substring(loc.lastIndexOf('/') + 1));
+
+        var plain = mvc.perform(get("/api/posts/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonContains("\"imageUrl\":\"/images/" + id + "\""))
+                .andReturn().getResponse();
+        String body = plain.getContentAsString(StandardCharsets.UTF_8);
+        assertThat(body).doesNotContain("imageData").contains("\"comments\":[]");
+
+        mvc.perform(get("/api/posts/" + id).header("If-None-Match", plain.getHeader("ETag")))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        var packed = mvc.perform(get("/api/posts/" + id).header("Accept-Encoding", "br, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn().getResponse();
+        assertThat(packed.getContentAsByteArray().length).isLessThan(body.getBytes(StandardCharsets.UTF_8).length / 4);
+        assertThat(gunzip(packed.getContentAsByteArray())).isEqualTo(body);
+        assertThat(packed.getHeader("ETag")).isNotEqualTo(plain.getHeader("ETag"));
+
+        mvc.perform(get("/api/posts/" + id).param("fields", "id,likesCount"))
+                .andExpect(content().string("{\"id\":" + id + ",\"likesCount\":0}"));
+    }
+
+    // создание, правка, лайк, комментарии и удаление через JSON
+    @Test
+    void crud_likes_and_comments() throws Exception {
+        String loc = create("{\"title\":\"Черновик\",\"tags\":\"a, b\",\"text\":\"строка\\nвторая\"}");
+
+        mvc.perform(put(loc).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Готово\",\"tags\":[\"b\"],\"text\":\"текст\"}"))
+                .andExpect(status().isNoContent());
+        mvc.perform(get(loc).param("fields", "title,tags,text"))
+                .andExpect(content().string("{\"title\":\"Готово\",\"text\":\"текст\",\"tags\":[\"b\"]}"));
+
+        mvc.perform(post(loc + "/like"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(endsWith(",\"likesCount\":1}")));
+
+        String comment = mvc.perform(post(loc + "/comments").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"первый\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String commentId = comment.replaceAll("\\D", "");
+        mvc.perform(put(loc + "/comments/" + commentId).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"исправленный\"}"))
+                .andExpect(status().isNoContent());
+        mvc.perform(get(loc + "/comments"))
+                .andExpect(jsonContains("\"id\":" + commentId + ",\"text\":\"исправленный\""));
+        mvc.perform(delete(loc + "/comments/" + commentId)).andExpect(status().isNoContent());
+        mvc.perform(get(loc + "/comments")).andExpect(content().string("[]"));
+
+        mvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Без текста\""))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(delete(loc)).andExpect(status().isNoContent());
+        mvc.perform(get(loc))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonContains("\"error\""));
+    }
+
+    private String create(String json) throws Exception {
+        return mvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", startsWith("/api/posts/")))
+                .andReturn().getResponse().getHeader("Location");
+    }
+
+    private static org.springframework.test.web.servlet.ResultMatcher jsonContains(String part) {
+        return result -> assertThat(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).contains(part);
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] png() throws IOException {
+        BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+}
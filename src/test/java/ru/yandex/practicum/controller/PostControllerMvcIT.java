@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.ContextHierarchy;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -13,12 +14,31 @@ import org.springframework.web.context.WebApplicationContext;
 
 import ru.yandex.practicum.WebConfiguration;
 import ru.yandex.practicum.configuration.ThymeleafConfiguration;
+import ru.yandex.practicum.model.Paging;
 import ru.yandex.practicum.repository.CommentRepository;
+import ru.yandex.practicum.repository.fs.FsImageStore;
 import ru.yandex.practicum.repository.jdbc.JdbcCommentRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcImageRepository;
 import ru.yandex.practicum.repository.jdbc.JdbcPostRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcSearchRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcTagRepository;
 import ru.yandex.practicum.service.impl.BlogServiceImpl;
+import ru.yandex.practicum.service.impl.FanOut;
+import ru.yandex.practicum.service.impl.ImageCollector;
+import ru.yandex.practicum.service.impl.ImageUploader;
+import ru.yandex.practicum.service.impl.LikeBuffer;
+import ru.yandex.practicum.service.impl.PostCache;
+import ru.yandex.practicum.service.impl.Thumbnailer;
 import ru.yandex.practicum.testconfig.TestDbConfig;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.beans.HasPropertyWithValue.hasProperty;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -32,6 +52,16 @@ import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppC
                 TestDbConfig.class,
                 JdbcPostRepository.class,
                 JdbcCommentRepository.class,
+                JdbcImageRepository.class,
+                JdbcSearchRepository.class,
+                JdbcTagRepository.class,
+                FsImageStore.class,
+                ImageCollector.class,
+                Thumbnailer.class,
+                ImageUploader.class,
+                PostCache.class,
+                LikeBuffer.class,
+                FanOut.class,
                 BlogServiceImpl.class
         }),
         @ContextConfiguration(classes = {
@@ -43,6 +73,7 @@ class PostControllerMvcIT {
 
     @Autowired WebApplicationContext wac;
     @Autowired CommentRepository comments;
+    @Autowired FeedCardCache cards;
 
     org.springframework.test.web.servlet.MockMvc mvc;
 
@@ -106,6 +137,46 @@ class PostControllerMvcIT {
                         )));
     }
 
+    // лишние теги в запросе не отбрасываются молча — 400 с причиной
+    @Test
+    void getPosts_tooManyTags_badRequest() throws Exception {
+        mvc.perform(get("/posts").param("search", "a,b,c,d,e,f,g,h,i"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Слишком много тегов")));
+    }
+
+    // листание курсором: токен следующей страницы из paging ведёт на страницу 2, оттуда можно вернуться назад
+    @Test
+    void getPosts_cursorPaging_nextAndBack() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(multipart("/posts")
+                    .param("title", "Cur" + i)
+                    .param("tags", "cursor")
+                    .param("text", "t"));
+        }
+
+        Paging first = (Paging) mvc.perform(get("/posts").param("search", "cursor").param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getModelAndView().getModel().get("paging");
+        assertThat(first.getNextCursor()).isNotNull();
+
+        Paging second = (Paging) mvc.perform(get("/posts")
+                        .param("search", "cursor")
+                        .param("pageSize", "2")
+                        .param("after", first.getNextCursor()))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("posts", hasSize(1)))
+                .andReturn().getModelAndView().getModel().get("paging");
+        assertThat(second.getPageNumber()).isEqualTo(2);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.hasPrevious()).isTrue();
+
+        // битый токен — просто первая страница
+        mvc.perform(get("/posts").param("after", "%%%"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("paging", hasProperty("pageNumber", equalTo(1))));
+    }
+
     /*
         GET "/posts/{id}" - страница с постом
         	Возвращает:
@@ -155,7 +226,7 @@ class PostControllerMvcIT {
     @Test
     void createPost_multipart_redirectsToShow() throws Exception {
         mvc.perform(multipart("/posts")
-                        .file("image", new byte[]{1})
+                        .file("image", png(1, 1))
                         .param("title", "T")
                         .param("tags", "a,b")
                         .param("text", "X"))
@@ -163,6 +234,21 @@ class PostControllerMvcIT {
                 .andExpect(redirectedUrlPattern("/posts/*"));
     }
 
+    @Test
+    void createPost_nonImageUpload_badRequest() throws Exception {
+        mvc.perform(multipart("/posts")
+                        .file(new MockMultipartFile("image", "notes.txt", "text/plain", new byte[]{1, 2}))
+                        .param("title", "T")
+                        .param("text", "X"))
+                .andExpect(status().isBadRequest());
+        // заявлено как картинка, но по байтам — нет
+        mvc.perform(multipart("/posts")
+                        .file(new MockMultipartFile("image", "cat.jpg", "image/jpeg", "not a cat".getBytes()))
+                        .param("title", "T")
+                        .param("text", "X"))
+                .andExpect(status().isBadRequest());
+    }
+
     /*
         GET "/images/{id}" -эндпоин, возвращающий набор байт картинки поста
        		Параметры:
@@ -170,8 +256,9 @@ class PostControllerMvcIT {
      */
     @Test
     void getImage_returnsBytes() throws Exception {
+        byte[] image = png(3, 3);
         var create = mvc.perform(multipart("/posts")
-                        .file("image", new byte[]{9, 9, 9})
+                        .file("image", image)
                         .param("title", "Pic")
                         .param("tags", "img")
                         .param("text", "img"))
@@ -181,8 +268,198 @@ class PostControllerMvcIT {
 
         mvc.perform(get("/images/{id}", id))
                 .andExpect(status().isOk())
-                .andExpect(header().string("Content-Type", startsWith("image/")))
-                .andExpect(content().bytes(new byte[]{9, 9, 9}));
+                .andExpect(header().string("Content-Type", "image/png")) // тип по байтам, а не image/jpeg
+                .andExpect(content().bytes(image));
+    }
+
+    // картинка отдаётся с ETag/Last-Modified, повторный запрос с If-None-Match получает 304
+    @Test
+    void getImage_conditionalRequest_returnsNotModified() throws Exception {
+        String location = mvc.perform(multipart("/posts")
+                        .file("image", png(4, 2))
+                        .param("title", "Pic")
+                        .param("tags", "img")
+                        .param("text", "img"))
+                .andReturn().getResponse().getRedirectedUrl();
+        String id = location.substring(location.lastIndexOf('/') + 1);
+
+        var first = mvc.perform(get("/images/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", containsString("max-age")))
+                .andReturn().getResponse();
+
+        mvc.perform(get("/images/{id}", id).header("If-None-Match", first.getHeader("ETag")))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        mvc.perform(get("/images/{id}", Long.parseLong(id) + 1000))
+                .andExpect(status().isNotFound());
+    }
+
+    // популярные теги — в ленте и JSON-ом
+    @Test
+    void popularTags_inFeedAndJson() throws Exception {
+        for (String tags : List.of("zeta,\"quoted\"", "zeta")) {
+            mvc.perform(multipart("/posts")
+                            .param("title", "T")
+                            .param("tags", tags)
+                            .param("text", "t"))
+                    .andExpect(status().is3xxRedirection());
+        }
+
+        mvc.perform(get("/posts"))
+                .andExpect(model().attribute("popularTags", hasItem(hasProperty("tag", equalTo("zeta")))))
+                .andExpect(content().string(containsString("#zeta")));
+
+        mvc.perform(get("/tags").param("limit", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", startsWith("application/json")))
+                .andExpect(content().string(containsString("{\"tag\":\"zeta\",\"count\":2}")))
+                .andExpect(content().string(containsString("{\"tag\":\"\\\"quoted\\\"\",\"count\":1}")));
+    }
+
+    // ?q= — поиск по тексту, найденные слова подсвечены
+    @Test
+    void feed_textSearch_highlightsMatches() throws Exception {
+        mvc.perform(multipart("/posts")
+                        .param("title", "Рецепт")
+                        .param("tags", "food")
+                        .param("text", "Сначала нагреть духовку, потом <b>печь</b> пирог"))
+                .andExpect(status().is3xxRedirection());
+
+        mvc.perform(get("/posts").param("q", "пирог"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("q", "пирог"))
+                .andExpect(model().attribute("posts", hasSize(1)))
+                .andExpect(content().string(containsString("<mark>пирог</mark>")))
+                .andExpect(content().string(containsString("&lt;b&gt;печь&lt;/b&gt;"))); // текст экранирован
+
+        mvc.perform(get("/posts").param("q", "пирог торт"))
+                .andExpect(model().attribute("posts", hasSize(0)));
+    }
+
+    // карточки ленты берутся из кэша, но лайк, комментарий и правка поста сразу видны
+    @Test
+    void feed_cards_cachedUntilPostChanges() throws Exception {
+        String loc = mvc.perform(multipart("/posts")
+                        .param("title", "Карточка")
+                        .param("tags", "cards")
+                        .param("text", "t"))
+                .andReturn().getResponse().getRedirectedUrl();
+
+        String first = mvc.perform(get("/posts").param("search", "cards"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long hits = cards.getHits();
+        assertThat(mvc.perform(get("/posts").param("search", "cards")).andReturn().getResponse().getContentAsString())
+                .isEqualTo(first);
+        assertThat(cards.getHits()).isEqualTo(hits + 1);
+
+        mvc.perform(post(loc + "/like").param("like", "true"));
+        mvc.perform(post(loc + "/comments").param("text", "c"));
+        mvc.perform(get("/posts").param("search", "cards"))
+                .andExpect(content().string(containsString("\uD83D\uDC4D 1")))
+                .andExpect(content().string(containsString("\u2709 1")));
+
+        mvc.perform(multipart(loc).param("title", "Новая карточка").param("tags", "cards").param("text", "t"));
+        mvc.perform(get("/posts").param("search", "cards"))
+                .andExpect(content().string(containsString("<h2>Новая карточка</h2>")));
+    }
+
+    // большая страница отрисовывается потоком: ответ отправляется по ходу, листание — по номеру страницы
+    @Test
+    void feed_largePage_isStreamed() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mvc.perform(multipart("/posts")
+                    .param("title", "Поток " + i)
+                    .param("tags", "streamed")
+                    .param("text", "t"));
+        }
+
+        var response = mvc.perform(get("/posts").param("search", "streamed").param("pageSize", "50"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("paging", allOf(
+                        hasProperty("pageSize", equalTo(50)),
+                        hasProperty("nextCursor", nullValue()))))
+                .andReturn().getResponse();
+
+        assertThat(response.isCommitted()).isTrue();
+        assertThat(response.getContentAsString())
+                .containsSubsequence("<h2>Поток 3</h2>", "<h2>Поток 2</h2>", "<h2>Поток 1</h2>");
+    }
+
+    // в ленте — уменьшенная копия (?size=feed), на странице поста — оригинал
+    @Test
+    void getImage_feedSize_returnsThumbnail() throws Exception {
+        byte[] original = jpeg(800, 1200);
+        String location = mvc.perform(multipart("/posts")
+                        .file("image", original)
+                        .param("title", "Big")
+                        .param("tags", "thumb")
+                        .param("text", "big"))
+                .andReturn().getResponse().getRedirectedUrl();
+        String id = location.substring(location.lastIndexOf('/') + 1);
+
+        byte[] thumb = mvc.perform(get("/images/{id}", id).param("size", "feed"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/jpeg"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(thumb.length).isLessThan(original.length);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumb));
+        assertThat(decoded.getHeight()).isEqualTo(600);
+        assertThat(decoded.getWidth()).isEqualTo(400);
+
+        mvc.perform(get("/images/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(original));
+
+        mvc.perform(get("/posts").param("search", "thumb"))
+                .andExpect(content().string(containsString("/images/" + id + "?size=feed")));
+    }
+
+    // широкая панорама не выше 600px тоже уменьшается — вписывается по ширине
+    @Test
+    void getImage_feedSize_panoramaIsLimitedByWidth() throws Exception {
+        String location = mvc.perform(multipart("/posts")
+                        .file("image", jpeg(6000, 500))
+                        .param("title", "Panorama")
+                        .param("text", "wide"))
+                .andReturn().getResponse().getRedirectedUrl();
+        String id = location.substring(location.lastIndexOf('/') + 1);
+
+        byte[] thumb = mvc.perform(get("/images/{id}", id).param("size", "feed"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumb));
+        assertThat(decoded.getWidth()).isEqualTo(1200);
+        assertThat(decoded.getHeight()).isEqualTo(100);
+
+        // больше бюджета пикселей — не декодируем вовсе, в ленте останется оригинал
+        Thumbnailer small = new Thumbnailer(600, 1200, 1_000_000);
+        assertThat(small.needed(6000, 500)).isFalse();
+        assertThat(small.needed(1000, 900)).isTrue();
+        assertThat(small.needed(800, 600)).isFalse(); // и так вписывается
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | ((x ^ y) & 0xFF));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "jpeg", out);
+        return out.toByteArray();
     }
 
     /*
@@ -248,8 +525,9 @@ class PostControllerMvcIT {
      */
     @Test
     void editPost_withoutNewImage_keepsOldImage() throws Exception {
+        byte[] image = png(5, 5);
         String loc = mvc.perform(multipart("/posts")
-                        .file("image", new byte[]{5})
+                        .file("image", image)
                         .param("title", "T")
                         .param("tags", "x")
                         .param("text", "t"))
@@ -265,7 +543,7 @@ class PostControllerMvcIT {
 
         mvc.perform(get("/images/{id}", id))
                 .andExpect(status().isOk())
-                .andExpect(content().bytes(new byte[]{5}));
+                .andExpect(content().bytes(image));
     }
 
     /*
@@ -283,8 +561,9 @@ class PostControllerMvcIT {
      */
     @Test
     void editPost_withNewImage_replacesImage() throws Exception {
+        byte[] replacement = png(2, 2);
         String loc = mvc.perform(multipart("/posts")
-                        .file("image", new byte[]{1})
+                        .file("image", png(1, 1))
                         .param("title", "T")
                         .param("tags", "x")
                         .param("text", "t"))
@@ -292,7 +571,7 @@ class PostControllerMvcIT {
         String id = loc.substring(loc.lastIndexOf('/') + 1);
 
         mvc.perform(multipart("/posts/{id}", id)
-                        .file("image", new byte[]{2})
+                        .file("image", replacement)
                         .param("title", "T2")
                         .param("tags", "x")
                         .param("text", "t2"))
@@ -301,7 +580,7 @@ class PostControllerMvcIT {
 
         mvc.perform(get("/images/{id}", id))
                 .andExpect(status().isOk())
-                .andExpect(content().bytes(new byte[]{2}));
+                .andExpect(content().bytes(replacement));
     }
 
     /*
@@ -387,4 +666,32 @@ class PostControllerMvcIT {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/posts"));
     }
+
+    // GET "/metrics" - метрики в формате Prometheus: время по шаблону пути, SQL по тексту выражения
+    @Test
+    void metrics_in_prometheus_format_cover_endpoints_service_and_sql() throws Exception {
+        String loc = mvc.perform(multipart("/posts")
+                        .param("title", "M")
+                        .param("tags", "metrics")
+                        .param("text", "t"))
+                .andReturn().getResponse().getRedirectedUrl();
+        mvc.perform(get(loc)).andExpect(status().isOk());
+        mvc.perform(get("/posts").param("search", "metrics")).andExpect(status().isOk());
+
+        String text = mvc.perform(get("/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(text)
+                .contains("# TYPE blog_http_request_duration_seconds histogram")
+                .containsPattern("blog_http_request_duration_seconds_count\\{method=\"GET\",endpoint=\"/posts/\\{id}\"} [1-9]")
+                .contains("blog_http_request_duration_quantile_seconds{method=\"GET\",endpoint=\"/posts\",quantile=\"0.99\"}")
+                .containsPattern("blog_http_request_statements_bucket\\{method=\"GET\",endpoint=\"/posts/\\{id}\",le=\"\\+Inf\"} [1-9]")
+                .containsPattern("blog_service_call_duration_seconds_count\\{service=\"BlogService\",method=\"getPost\"} [1-9]")
+                .containsPattern("blog_sql_calls_total\\{sql=\"SELECT [^\"]*FROM posts[^\"]*\"} [1-9]")
+                .contains("blog_pool_connections{state=\"active\"}");
+        // списки "?, ?, ?" сведены к одному, чтобы размер страницы не плодил метки
+        assertThat(text).doesNotContainPattern("IN \\(\\?, \\?");
+    }
 }
@@ -8,7 +8,10 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import ru.yandex.practicum.repository.jdbc.JdbcCommentRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcImageRepository;
 import ru.yandex.practicum.repository.jdbc.JdbcPostRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcSearchRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcTagRepository;
 import ru.yandex.practicum.testconfig.TestDbConfig;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -17,7 +20,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 @ContextConfiguration(classes = {
         TestDbConfig.class,
         JdbcPostRepository.class,
-        JdbcCommentRepository.class
+        JdbcCommentRepository.class,
+        JdbcImageRepository.class,
+        JdbcSearchRepository.class,
+        JdbcTagRepository.class
 })
 class JdbcCommentRepositoryIT {
 
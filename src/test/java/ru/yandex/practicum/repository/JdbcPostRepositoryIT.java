@@ -7,58 +7,177 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.yandex.practicum.model.FeedCursor;
+import ru.yandex.practicum.model.ImageMeta;
+import ru.yandex.practicum.model.InvalidTagQueryException;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.model.TagCount;
+import ru.yandex.practicum.model.TagQuery;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostSummary;
 import ru.yandex.practicum.repository.jdbc.JdbcCommentRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcImageRepository;
 import ru.yandex.practicum.repository.jdbc.JdbcPostRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcSearchRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcTagRepository;
 import ru.yandex.practicum.testconfig.TestDbConfig;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = {
         TestDbConfig.class,
         JdbcPostRepository.class,
-        JdbcCommentRepository.class
+        JdbcCommentRepository.class,
+        JdbcImageRepository.class,
+        JdbcSearchRepository.class,
+        JdbcTagRepository.class
 })
 class JdbcPostRepositoryIT {
 
     @Autowired JdbcPostRepository posts;
     @Autowired JdbcCommentRepository comments;
     @Autowired JdbcTemplate jdbc;
+    @Autowired JdbcTagRepository tagCounts;
 
     @BeforeEach
     void clean() {
         // Чистим БД
         jdbc.update("DELETE FROM comments");
+        jdbc.update("DELETE FROM post_tags");
         jdbc.update("DELETE FROM posts");
+        jdbc.update("DELETE FROM images");
+        jdbc.update("DELETE FROM tag_counts");
+    }
+
+    private static PostImage img(char c) {
+        return new PostImage(new ImageMeta(String.valueOf(c).repeat(64), 3, LocalDateTime.now()), null);
+    }
+
+    private int refs(char c) {
+        List<Integer> list = jdbc.queryForList("SELECT ref_count FROM images WHERE hash = ?", Integer.class,
+                String.valueOf(c).repeat(64));
+        return list.isEmpty() ? -1 : list.get(0);
     }
 
     @Test
-    void create_and_findById_maps_all_fields_including_image() {
-        long id = posts.create("T", List.of("java","spring"), "A\nB", new byte[]{1,2,3});
+    void create_and_findById_maps_all_fields_image_loaded_separately() {
+        long id = posts.create("T", List.of("java","spring"), "A\nB", img('a'));
         Post p = posts.findById(id).orElseThrow();
         assertThat(p.getTitle()).isEqualTo("T");
         assertThat(p.getTags()).containsExactlyInAnyOrder("java","spring");
-        //assertThat(p.getTextParts()).containsExactly("A","B");
-        assertThat(p.getImageData()).containsExactly(1,2,3);
+        assertThat(p.getTextParts()).containsExactly("A","B");
+        assertThat(p.getImageData()).isNull(); // findById картинку не грузит
+        assertThat(posts.findImageMeta(id)).hasValueSatisfying(m -> {
+            assertThat(m.getHash()).isEqualTo("a".repeat(64));
+            assertThat(m.getSize()).isEqualTo(3);
+        });
+        assertThat(refs('a')).isEqualTo(1);
         assertThat(p.getLikesCount()).isZero();
     }
 
+    @Test
+    void tag_counts_follow_create_update_delete_and_rebuild_repairs_them() {
+        long a = posts.create("A", List.of("java", "Spring"), "t", null);
+        long b = posts.create("B", List.of("java"), "t", null);
+        assertThat(tagCounts.findTop(10)).extracting(TagCount::getTag, TagCount::getCount)
+                .containsExactly(tuple("java", 2), tuple("spring", 1));
+
+        // java остался — его счётчик не трогаем
+        assertThat(posts.update(b, "B", List.of("java", "sql"), "t", null)).isEqualTo(Map.of("sql", 1));
+        posts.update(a, "A", List.of("sql"), "t", null);
+        assertThat(tagCounts.findTop(10)).extracting(TagCount::getTag, TagCount::getCount)
+                .containsExactly(tuple("sql", 2), tuple("java", 1));
+        assertThat(tagCounts.findTop(1)).extracting(TagCount::getTag).containsExactly("sql");
+
+        assertThat(posts.delete(b)).isEqualTo(Map.of("", -1, "java", -1, "sql", -1));
+        assertThat(posts.delete(b)).isEmpty(); // второй раз — поста уже нет, счётчики на месте
+        assertThat(tagCounts.findTop(10)).extracting(TagCount::getTag, TagCount::getCount)
+                .containsExactly(tuple("sql", 1));
+
+        jdbc.update("UPDATE tag_counts SET post_count = 42");
+        assertThat(tagCounts.rebuild()).isEqualTo(1);
+        assertThat(tagCounts.findTop(10)).extracting(TagCount::getTag, TagCount::getCount)
+                .containsExactly(tuple("sql", 1));
+    }
+
+    @Test
+    void preview_saved_on_create_and_update() {
+        long id = posts.create("P", List.of(), "\n  one \r\n\r\n two\n   \nthree\nfour", null);
+        PostSummary inFeed = posts.findFeed("", 0, 10).get(0);
+        assertThat(inFeed.getPreview()).isEqualTo(String.join(System.lineSeparator(), "one", "two", "three"));
+
+        assertThat(inFeed.isHasImage()).isFalse();
+
+        posts.update(id, "P", List.of(), "only", img('5'));
+        assertThat(posts.findFeed("", 0, 10).get(0).isHasImage()).isTrue();
+        posts.update(id, "P", List.of(), "only", null);
+        assertThat(posts.findFeed("", 0, 10).get(0).getPreview()).isEqualTo("only");
+        assertThat(posts.findById(id).orElseThrow().getTextParts()).containsExactly("only");
+    }
+
+    @Test
+    void findImageMeta_empty_when_no_image_or_no_post() {
+        long id = posts.create("N", List.of(), "t", null);
+        assertThat(posts.findImageMeta(id)).isEmpty();
+        assertThat(posts.findImageMeta(id + 1000)).isEmpty();
+    }
+
     @Test
     void update_without_image_keeps_previous_image_update_with_image_replaces() {
-        long id = posts.create("A", List.of("x"), "t", new byte[]{9});
-        assertThat(posts.findById(id).orElseThrow().getImageData()).containsExactly(9);
+        long id = posts.create("A", List.of("x"), "t", img('9'));
+        assertThat(posts.findImageMeta(id).orElseThrow().getHash()).isEqualTo("9".repeat(64));
 
         posts.update(id, "A2", List.of("x","y"), "t2", null); // без новой картинки
         Post after1 = posts.findById(id).orElseThrow();
         assertThat(after1.getTitle()).isEqualTo("A2");
-        assertThat(after1.getImageData()).containsExactly(9);
+        assertThat(posts.findImageMeta(id).orElseThrow().getHash()).isEqualTo("9".repeat(64));
+        assertThat(refs('9')).isEqualTo(1);
+
+        posts.update(id, "A3", List.of("y"), "t3", img('7'));
+        assertThat(posts.findImageMeta(id).orElseThrow().getHash()).isEqualTo("7".repeat(64));
+        assertThat(refs('9')).isZero();
+        assertThat(refs('7')).isEqualTo(1);
+    }
+
+    @Test
+    void image_refs_are_counted_per_post() {
+        long a = posts.create("A", List.of(), "t", img('c'));
+        long b = posts.create("B", List.of(), "t", img('c'));
+        assertThat(refs('c')).isEqualTo(2);
+
+        posts.delete(a);
+        assertThat(refs('c')).isEqualTo(1);
+        posts.delete(b);
+        posts.delete(b); // повторное удаление ссылку не отпускает
+        assertThat(refs('c')).isZero();
+    }
+
+    @Test
+    void thumbnail_is_referenced_and_served_for_feed_falls_back_to_original() {
+        long plain = posts.create("P", List.of(), "t", img('d'));
+        assertThat(posts.findThumbnailMeta(plain).orElseThrow().getHash()).isEqualTo("d".repeat(64));
+
+        var thumb = new ImageMeta("f".repeat(64), 1, LocalDateTime.now());
+        long big = posts.create("B", List.of(), "t", new PostImage(img('e').getOriginal(), thumb));
+        assertThat(posts.findThumbnailMeta(big)).hasValueSatisfying(m -> {
+            assertThat(m.getHash()).isEqualTo("f".repeat(64));
+            assertThat(m.getSize()).isEqualTo(1);
+        });
+        assertThat(refs('e')).isEqualTo(1);
+        assertThat(refs('f')).isEqualTo(1);
 
-        posts.update(id, "A3", List.of("y"), "t3", new byte[]{7});
-        Post after2 = posts.findById(id).orElseThrow();
-        assertThat(after2.getImageData()).containsExactly(7);
+        posts.update(big, "B", List.of(), "t", img('d')); // новая картинка без копии
+        assertThat(refs('e')).isZero();
+        assertThat(refs('f')).isZero();
+        assertThat(refs('d')).isEqualTo(2);
+        assertThat(posts.findThumbnailMeta(big).orElseThrow().getHash()).isEqualTo("d".repeat(64));
     }
 
     @Test
@@ -91,19 +210,19 @@ class JdbcPostRepositoryIT {
 
         // без фильтра: порядок по created_at DESC -> C, B, A
         var pageAll = posts.findFeed("", 0, 10);
-        assertThat(pageAll).extracting(Post::getTitle).containsExactly("C","B","A");
+        assertThat(pageAll).extracting(PostSummary::getTitle).containsExactly("C","B","A");
 
         // пагинация: limit=2 offset=0 => C, B
         var page1 = posts.findFeed("", 0, 2);
-        assertThat(page1).extracting(Post::getTitle).containsExactly("C","B");
+        assertThat(page1).extracting(PostSummary::getTitle).containsExactly("C","B");
 
         // пагинация: limit=2 offset=2 => A
         var page2 = posts.findFeed("", 2, 2);
-        assertThat(page2).extracting(Post::getTitle).containsExactly("A");
+        assertThat(page2).extracting(PostSummary::getTitle).containsExactly("A");
 
         // фильтр по тегу: "java" не должен матчить "javascript"
         var onlyJava = posts.findFeed("java", 0, 10);
-        assertThat(onlyJava).extracting(Post::getTitle).containsExactlyInAnyOrder("A","C");
+        assertThat(onlyJava).extracting(PostSummary::getTitle).containsExactlyInAnyOrder("A","C");
 
         assertThat(posts.countFeed("")).isEqualTo(3);
         assertThat(posts.countFeed("java")).isEqualTo(2);
@@ -111,6 +230,114 @@ class JdbcPostRepositoryIT {
         assertThat(posts.countFeed("javascript")).isEqualTo(1);
     }
 
+    @Test
+    void tag_index_follows_create_update_delete() {
+        long a = posts.create("A", List.of("Java", " spring ", "java"), "a", null);
+        long b = posts.create("B", List.of("java"), "b", null);
+
+        // теги нормализуются: нижний регистр, без повторов
+        assertThat(jdbc.queryForList("SELECT tag FROM post_tags WHERE post_id = ? ORDER BY tag", String.class, a))
+                .containsExactly("java", "spring");
+        assertThat(posts.findById(a).orElseThrow().getTags()).containsExactly("java", "spring");
+        assertThat(posts.countFeed("JAVA")).isEqualTo(2);
+
+        posts.update(a, "A2", List.of("kotlin"), "a2", null);
+        assertThat(posts.findFeed("java", 0, 10)).extracting(PostSummary::getTitle).containsExactly("B");
+        assertThat(posts.findFeed("kotlin", 0, 10)).extracting(PostSummary::getTitle).containsExactly("A2");
+        assertThat(posts.countFeed("spring")).isZero();
+
+        posts.delete(b);
+        assertThat(posts.countFeed("java")).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM post_tags", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void keyset_pages_are_stable_when_created_at_ties() {
+        for (int i = 1; i <= 5; i++) posts.create("P" + i, List.of("t"), "x", null);
+        // одинаковое время у всех постов — порядок решает id
+        jdbc.update("UPDATE posts SET created_at = TIMESTAMP '2024-01-01 10:00:00'");
+        jdbc.update("UPDATE post_tags SET created_at = TIMESTAMP '2024-01-01 10:00:00'");
+
+        for (String tag : List.of("", "t")) {
+            var first = posts.findFeed(tag, 0, 2);
+            assertThat(first).extracting(PostSummary::getTitle).containsExactly("P5", "P4");
+
+            var second = posts.findFeedAfter(tag, FeedCursor.of(first.get(1), 2), 2);
+            assertThat(second).extracting(PostSummary::getTitle).containsExactly("P3", "P2");
+
+            var third = posts.findFeedAfter(tag, FeedCursor.of(second.get(1), 3), 2);
+            assertThat(third).extracting(PostSummary::getTitle).containsExactly("P1");
+
+            var back = posts.findFeedBefore(tag, FeedCursor.of(third.get(0), 2), 2);
+            assertThat(back).extracting(PostSummary::getTitle).containsExactly("P3", "P2");
+        }
+    }
+
+    @Test
+    void multi_tag_and_prefix_queries_keep_feed_order_and_paginate() {
+        posts.create("P1", List.of("java"), "x", null);
+        posts.create("P2", List.of("java", "spring"), "x", null);
+        posts.create("P3", List.of("spring"), "x", null);
+        posts.create("P4", List.of("java", "spring", "sprint"), "x", null);
+        posts.create("P5", List.of("kotlin"), "x", null);
+        posts.create("P6", List.of("sprint"), "x", null);
+
+        assertThat(posts.findFeed("java,spring", 0, 10)).extracting(PostSummary::getTitle).containsExactly("P4", "P2");
+        assertThat(posts.findFeed("java|kotlin", 0, 10)).extracting(PostSummary::getTitle)
+                .containsExactly("P5", "P4", "P2", "P1");
+        // префикс: spring или sprint, пост с обоими — один раз
+        assertThat(posts.findFeed("SPR*", 0, 10)).extracting(PostSummary::getTitle)
+                .containsExactly("P6", "P4", "P3", "P2");
+        assertThat(posts.findFeed("java,spr*", 0, 10)).extracting(PostSummary::getTitle).containsExactly("P4", "P2");
+        assertThat(posts.findFeed("nope,java", 0, 10)).isEmpty();
+        assertThat(posts.findFeed("nope|java", 0, 10)).hasSize(3);
+
+        assertThat(posts.countFeed("java,spring")).isEqualTo(2);
+        assertThat(posts.countFeed("java|kotlin")).isEqualTo(4);
+        assertThat(posts.countFeed("spr*")).isEqualTo(4);
+        assertThat(posts.countFeed("nope,java")).isZero();
+
+        // страницы по offset и курсором
+        String any = "java|spring";
+        assertThat(posts.findFeed(any, 0, 2)).extracting(PostSummary::getTitle).containsExactly("P4", "P3");
+        var second = posts.findFeed(any, 2, 2);
+        assertThat(second).extracting(PostSummary::getTitle).containsExactly("P2", "P1");
+        var p3 = posts.findFeed(any, 1, 1).get(0);
+        assertThat(posts.findFeedAfter(any, FeedCursor.of(p3, 2), 2)).extracting(PostSummary::getTitle)
+                .containsExactly("P2", "P1");
+        assertThat(posts.findFeedBefore(any, FeedCursor.of(second.get(0), 1), 2)).extracting(PostSummary::getTitle)
+                .containsExactly("P4", "P3");
+
+        var p4 = posts.findFeed("java,spring", 0, 1).get(0);
+        assertThat(posts.findFeedAfter("java,spring", FeedCursor.of(p4, 2), 10)).extracting(PostSummary::getTitle)
+                .containsExactly("P2");
+        assertThat(posts.findFeedAfter("spr*", FeedCursor.of(p4, 2), 10)).extracting(PostSummary::getTitle)
+                .containsExactly("P3", "P2");
+    }
+
+    @Test
+    void prefix_query_covers_every_matching_tag_not_only_frequent_ones() {
+        // 150 разных тегов с одним началом, у каждого по посту; редкий тег с этим началом — последним
+        for (int i = 0; i < 150; i++) {
+            posts.create("S" + i, List.of("spr-" + i), "x", null);
+        }
+        posts.create("Rare", List.of("java", "spr-rare"), "x", null);
+        posts.create("Other", List.of("sps", "spq"), "x", null); // рядом с диапазоном, но не в нём
+
+        assertThat(posts.countFeed("spr*")).isEqualTo(151);
+        assertThat(posts.findFeed("spr*", 0, 200)).hasSize(151);
+        assertThat(posts.findFeed("java,spr*", 0, 10)).extracting(PostSummary::getTitle).containsExactly("Rare");
+        assertThat(posts.countFeed("spr-1*|sps")).isEqualTo(62); // spr-1, spr-10..19, spr-100..149 и Other
+    }
+
+    @Test
+    void too_many_terms_are_rejected_instead_of_dropped() {
+        assertThat(TagQuery.parse("a,b,c,d,e,f,g,h").getTerms()).hasSize(TagQuery.MAX_TERMS);
+        assertThatThrownBy(() -> TagQuery.parse("a,b,c,d,e,f,g,h,i"))
+                .isInstanceOf(InvalidTagQueryException.class)
+                .hasMessageContaining("9");
+    }
+
     private static void sleepTiny() {
         try { Thread.sleep(2); } catch (InterruptedException ignored) {}
     }
@@ -0,0 +1,485 @@
+package ru.yandex.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.FeedView;
+import ru.yandex.practicum.model.ImageUpload;
+import ru.yandex.practicum.model.LikeDelta;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostSummary;
+import ru.yandex.practicum.model.TagCount;
+import ru.yandex.practicum.repository.CommentRepository;
+import ru.yandex.practicum.repository.ImageStore;
+import ru.yandex.practicum.repository.PostRepository;
+import ru.yandex.practicum.repository.SearchRepository;
+import ru.yandex.practicum.repository.TagRepository;
+import ru.yandex.practicum.repository.fs.FsImageStore;
+import ru.yandex.practicum.repository.jdbc.JdbcCommentRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcImageRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcPostRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcSearchRepository;
+import ru.yandex.practicum.repository.jdbc.JdbcTagRepository;
+import ru.yandex.practicum.service.impl.BlogServiceImpl;
+import ru.yandex.practicum.service.impl.FanOut;
+import ru.yandex.practicum.service.impl.ImageCollector;
+import ru.yandex.practicum.service.impl.ImageMigration;
+import ru.yandex.practicum.service.impl.ImageUploader;
+import ru.yandex.practicum.service.impl.LikeBuffer;
+import ru.yandex.practicum.service.impl.PostCache;
+import ru.yandex.practicum.service.impl.Thumbnailer;
+import ru.yandex.practicum.testconfig.StatementCounter;
+import ru.yandex.practicum.testconfig.TestDbConfig;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {
+        TestDbConfig.class,
+        StatementCounter.class,
+        JdbcPostRepository.class,
+        JdbcCommentRepository.class,
+        JdbcImageRepository.class,
+        JdbcSearchRepository.class,
+        JdbcTagRepository.class,
+        FsImageStore.class,
+        ImageCollector.class,
+        Thumbnailer.class,
+        ImageUploader.class,
+        ImageMigration.class,
+        PostCache.class,
+        LikeBuffer.class,
+        FanOut.class,
+        BlogServiceImpl.class
+})
+@TestPropertySource(properties = {
+        "blog.images.dir=target/test-images/service",
+        "blog.images.max-bytes=4096"
+})
+class BlogServiceImplIT {
+
+    @Autowired BlogService blog;
+    @Autowired StatementCounter statements;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired PostCache cache;
+    @Autowired LikeBuffer likes;
+    @Autowired ImageStore images;
+    @Autowired ImageCollector imageCollector;
+    @Autowired ImageMigration imageMigration;
+    @Autowired PostRepository postRepository;
+    @Autowired CommentRepository commentRepository;
+    @Autowired SearchRepository searchRepository;
+    @Autowired TagRepository tagRepository;
+    @Autowired ImageUploader uploader;
+
+    @BeforeEach
+    void clean() {
+        jdbc.update("DELETE FROM comments");
+        jdbc.update("DELETE FROM posts");
+        jdbc.update("DELETE FROM images");
+        imageCollector.collect(); // файлы без строк в images
+        cache.invalidateAll(); // чистили мимо сервиса
+    }
+
+    @Test
+    void findFeed_counts_comments_without_n_plus_one_and_without_bodies() {
+        for (int i = 0; i < 20; i++) {
+            long id = blog.createPost("P" + i, List.of("t"), "text", null);
+            blog.addComment(id, "c" + i + "-1");
+            blog.addComment(id, "c" + i + "-2");
+        }
+
+        statements.reset();
+        List<PostSummary> page = blog.findFeed("", 1, 20);
+
+        // один запрос за постами + один GROUP BY по комментариям, независимо от размера страницы
+        assertThat(statements.count()).isEqualTo(2);
+        assertThat(page).hasSize(20);
+        assertThat(page).allSatisfy(p -> assertThat(p.getCommentsCount()).isEqualTo(2));
+    }
+
+    @Test
+    void streamFeed_reads_the_same_page_in_chunks() {
+        for (int i = 0; i < 25; i++) blog.createPost("S" + i, List.of("stream"), "t", null);
+        List<PostSummary> page = blog.findFeed("stream", 2, 10);
+
+        statements.reset();
+        Iterable<PostSummary> stream = blog.streamFeed("stream", 2, 10, 3);
+        assertThat(statements.count()).isZero(); // ничего не читается до обхода
+        assertThat(stream).extracting(PostSummary::getTitle)
+                .containsExactlyElementsOf(page.stream().map(PostSummary::getTitle).toList());
+        // 10 постов порциями по 3: 3 + 3 + 3 + 1, каждая — посты и их комментарии
+        assertThat(statements.count()).isEqualTo(8);
+
+        // последняя страница короче: лишнего запроса после неполной порции нет
+        assertThat(blog.streamFeed("stream", 3, 10, 4)).extracting(PostSummary::getTitle)
+                .containsExactly("S4", "S3", "S2", "S1", "S0");
+    }
+
+    @Test
+    void countFeed_is_cached_and_follows_create_update_delete() {
+        int all = blog.countFeed("");
+        assertThat(blog.countFeed("cnt-a")).isZero();
+
+        long id = blog.createPost("C", List.of("cnt-a", "CNT-B"), "t", null);
+        blog.createPost("D", List.of("cnt-a"), "t", null);
+
+        statements.reset();
+        assertThat(blog.countFeed("")).isEqualTo(all + 2);
+        assertThat(blog.countFeed("cnt-a")).isEqualTo(2);
+        assertThat(statements.count()).isZero(); // из кэша, без COUNT(*)
+        assertThat(blog.countFeed("cnt-b")).isEqualTo(1); // первый раз — из БД
+
+        blog.updatePost(id, "C2", List.of("cnt-b", "cnt-c"), "t", null);
+        assertThat(blog.countFeed("cnt-a")).isEqualTo(1);
+        assertThat(blog.countFeed("cnt-b")).isEqualTo(1);
+        assertThat(blog.countFeed("cnt-c")).isEqualTo(1);
+
+        blog.deletePost(id);
+        blog.deletePost(id); // повторная отправка формы: удалять уже нечего
+        assertThat(blog.countFeed("")).isEqualTo(all + 1);
+        assertThat(blog.countFeed("cnt-a")).isEqualTo(1);
+        assertThat(blog.countFeed("cnt-b")).isZero();
+        assertThat(blog.countFeed("cnt-c")).isZero();
+    }
+
+    @Test
+    void getPost_and_feed_are_cached_and_invalidated_by_writes() {
+        long id = blog.createPost("Hot", List.of("c"), "v1", null);
+        blog.getPost(id);
+        blog.findFeed("", 1, 10);
+        long hits = cache.getHits();
+
+        statements.reset();
+        assertThat(blog.getPost(id).orElseThrow().getText()).isEqualTo("v1");
+        assertThat(blog.findFeed("", 1, 10)).extracting(PostSummary::getTitle).containsExactly("Hot");
+        assertThat(statements.count()).isZero();
+        assertThat(cache.getHits()).isEqualTo(hits + 2);
+
+        // после записи — сразу свежие данные
+        blog.updatePost(id, "Hot2", List.of("c"), "v2", null);
+        assertThat(blog.getPost(id).orElseThrow().getText()).isEqualTo("v2");
+        assertThat(blog.findFeed("", 1, 10)).extracting(PostSummary::getTitle).containsExactly("Hot2");
+
+        blog.addComment(id, "first");
+        assertThat(blog.getPost(id).orElseThrow().getComments()).hasSize(1);
+        assertThat(blog.findFeed("", 1, 10).get(0).getCommentsCount()).isEqualTo(1);
+
+        blog.likePost(id, true);
+        assertThat(blog.getPost(id).orElseThrow().getLikesCount()).isEqualTo(1);
+
+        blog.deletePost(id);
+        assertThat(blog.getPost(id)).isEmpty();
+        assertThat(blog.findFeed("", 1, 10)).isEmpty();
+    }
+
+    @Test
+    void likes_are_buffered_visible_immediately_and_flushed_in_batch() {
+        long id = blog.createPost("Viral", List.of(), "t", null);
+        blog.getPost(id); // в кэше
+
+        statements.reset();
+        blog.likePost(id, false); // 0 → 0, ниже нуля не уходим
+        blog.likePost(id, true);  // → 1
+        blog.likePost(id, true);  // → 2
+        blog.likePost(id, false); // → 1
+        assertThat(statements.count()).isZero();
+        assertThat(blog.getPost(id).orElseThrow().getLikesCount()).isEqualTo(1);
+        assertThat(blog.findFeed("", 1, 10).get(0).getLikesCount()).isEqualTo(1);
+
+        likes.flush();
+        assertThat(jdbc.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Integer.class, id)).isEqualTo(1);
+        assertThat(blog.getPost(id).orElseThrow().getLikesCount()).isEqualTo(1);
+
+        blog.likePost(id, false);
+        blog.likePost(id, false);
+        blog.likePost(id, true);
+        likes.flush();
+        assertThat(blog.getPost(id).orElseThrow().getLikesCount()).isEqualTo(1);
+    }
+
+    // пачка пишется в БД без write-lock: чтения в это время идут и видят лайки;
+    // не записалась — возвращается в буфер вместе с кликами, пришедшими после неё
+    @Test
+    void like_flush_does_not_block_reads_and_requeues_failed_batch() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean fail = new AtomicBoolean();
+        List<LikeDelta> written = new CopyOnWriteArrayList<>();
+        PostRepository slowDb = (PostRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PostRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("applyLikes")) throw new UnsupportedOperationException();
+                    writing.countDown();
+                    assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+                    if (fail.get()) throw new IllegalStateException("БД недоступна");
+                    @SuppressWarnings("unchecked") var batch = (Collection<LikeDelta>) args[0];
+                    written.addAll(batch);
+                    return null;
+                });
+        LikeBuffer buffer = new LikeBuffer(slowDb, new PostCache(1 << 20, 60));
+        PostSummary post = PostSummary.builder().id(1L).likesCount(5).build();
+
+        buffer.like(1, true);
+        fail.set(true);
+        ExecutorService flusher = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> flush = flusher.submit(buffer::flush);
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+            // сброс стоит в БД — чтение не ждёт его и видит лайк из пачки; новые клики принимаются
+            assertThat(buffer.read(() -> buffer.merge(post)).getLikesCount()).isEqualTo(6);
+            buffer.like(1, true);
+            assertThat(buffer.read(() -> buffer.merge(post)).getLikesCount()).isEqualTo(7);
+            release.countDown();
+            assertThatThrownBy(flush::get).hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            flusher.shutdownNow();
+        }
+
+        // пачка вернулась: оба лайка на месте и уходят следующим сбросом одной дельтой
+        assertThat(buffer.read(() -> buffer.merge(post)).getLikesCount()).isEqualTo(7);
+        fail.set(false);
+        buffer.flush();
+        assertThat(written).singleElement().satisfies(d -> assertThat(d.applyTo(5)).isEqualTo(7));
+        assertThat(buffer.getPendingPosts()).isZero();
+        assertThat(buffer.read(() -> buffer.merge(post)).getLikesCount()).isEqualTo(5);
+    }
+
+    @Test
+    void search_ranks_by_matches_and_follows_post_and_comment_writes() {
+        long inText = blog.createPost("Про лес", List.of(), "Сегодня видели ёжика у реки.\nЁжик убежал.", null);
+        long inTitle = blog.createPost("Ёжик в тумане", List.of(), "Мультфильм про реку", null);
+        long other = blog.createPost("Кошки", List.of(), "Ничего про реку", null);
+
+        // слово в заголовке весит больше; все слова запроса обязательны
+        assertThat(blog.searchPosts("ёжик", 1, 10)).extracting(PostSummary::getId).containsExactly(inTitle, inText);
+        assertThat(blog.searchPosts("ЁЖИК реку", 1, 10)).extracting(PostSummary::getId).containsExactly(inTitle);
+        assertThat(blog.countSearch("ёжик")).isEqualTo(2);
+        assertThat(blog.searchPosts("ёжик", 2, 1)).extracting(PostSummary::getId).containsExactly(inText);
+
+        // фрагмент с подсветкой — из текста поста
+        PostSummary hit = blog.searchPosts("убежал", 1, 10).get(0);
+        assertThat(hit.getSnippet()).anySatisfy(part -> {
+            assertThat(part.isMatch()).isTrue();
+            assertThat(part.getText()).isEqualTo("убежал");
+        });
+
+        long comment = blog.addComment(other, "А ёжик тоже был");
+        assertThat(blog.searchPosts("ёжик", 1, 10)).extracting(PostSummary::getId).contains(other);
+        assertThat(blog.searchPosts("ёжик", 1, 10).stream().filter(p -> p.getId() == other).findFirst().orElseThrow()
+                .getSnippet()).isNull(); // совпало в комментарии — в ленте обычное превью
+        blog.deleteComment(other, comment);
+        assertThat(blog.countSearch("ёжик")).isEqualTo(2);
+
+        blog.updatePost(inText, "Про лес", List.of(), "Одни белки", null);
+        assertThat(blog.searchPosts("ёжик", 1, 10)).extracting(PostSummary::getId).containsExactly(inTitle);
+        assertThat(blog.searchPosts("белки", 1, 10)).extracting(PostSummary::getId).containsExactly(inText);
+
+        blog.deletePost(inTitle);
+        assertThat(blog.countSearch("ёжик")).isZero();
+        assertThat(blog.searchPosts("  ", 1, 10)).isEmpty();
+    }
+
+    @Test
+    void same_image_is_stored_once_and_collected_when_no_post_refers_to_it() throws IOException {
+        byte[] cat = image("png", 3, 3);
+        byte[] dog = image("png", 4, 4);
+        long a = blog.createPost("A", List.of(), "t", ImageUpload.of(cat));
+        long b = blog.createPost("B", List.of(), "t", ImageUpload.of(cat.clone()));
+
+        String hash = blog.findImageMeta(a).orElseThrow().getHash();
+        assertThat(blog.findImageMeta(b).orElseThrow().getHash()).isEqualTo(hash);
+        assertThat(images.hashes()).containsExactly(hash); // один файл на оба поста
+        assertThat(imageBytes(b)).isEqualTo(cat);
+
+        blog.deletePost(a);
+        assertThat(imageCollector.collect()).isZero(); // на картинку ещё ссылается b
+
+        blog.updatePost(b, "B", List.of(), "t", ImageUpload.of(dog));
+        assertThat(imageCollector.collect()).isEqualTo(1);
+        assertThat(images.hashes()).doesNotContain(hash);
+        assertThat(imageBytes(b)).isEqualTo(dog);
+    }
+
+    @Test
+    void migration_moves_blobs_out_of_posts() {
+        jdbc.update("INSERT INTO posts (title, text, image_data) VALUES ('Old', 't', ?)", (Object) new byte[]{7, 7});
+        long id = jdbc.queryForObject("SELECT id FROM posts WHERE title = 'Old'", Long.class);
+
+        assertThat(imageMigration.migrate()).isEqualTo(1);
+        assertThat(imageMigration.migrate()).isZero(); // повторно — нечего переносить
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM posts WHERE image_data IS NOT NULL", Integer.class)).isZero();
+        assertThat(imageBytes(id)).containsExactly(7, 7);
+        assertThat(jdbc.queryForObject("SELECT ref_count FROM images", Integer.class)).isEqualTo(1);
+        assertThat(blog.findImageMeta(id).orElseThrow().getContentType()).isNull(); // не картинка — типа нет
+    }
+
+    @Test
+    void image_type_and_size_are_taken_from_the_bytes() throws IOException {
+        // заявленный тип ничего не решает — смотрим на сигнатуру
+        long png = blog.createPost("P", List.of(), "t",
+                new ImageUpload(new ByteArrayResource(image("png", 3, 2)), "application/octet-stream"));
+        long jpeg = blog.createPost("J", List.of(), "t", ImageUpload.of(image("jpeg", 5, 7)));
+        long gif = blog.createPost("G", List.of(), "t", ImageUpload.of(image("gif", 2, 9)));
+        long webp = blog.createPost("W", List.of(), "t", ImageUpload.of(webpHeader(640, 480)));
+
+        assertThat(blog.findImageMeta(png).orElseThrow())
+                .extracting("contentType", "width", "height").containsExactly("image/png", 3, 2);
+        assertThat(blog.findImageMeta(jpeg).orElseThrow())
+                .extracting("contentType", "width", "height").containsExactly("image/jpeg", 5, 7);
+        assertThat(blog.findImageMeta(gif).orElseThrow())
+                .extracting("contentType", "width", "height").containsExactly("image/gif", 2, 9);
+        assertThat(blog.findImageMeta(webp).orElseThrow())
+                .extracting("contentType", "width", "height").containsExactly("image/webp", 640, 480);
+        // маленькой картинке копия для ленты не нужна — отдаётся оригинал со своим типом
+        assertThat(blog.findThumbnailMeta(gif).orElseThrow().getContentType()).isEqualTo("image/gif");
+    }
+
+    @Test
+    void fan_out_in_threads_gives_the_same_pages_and_fails_fast() throws Exception {
+        long id = blog.createPost("Fan", List.of("fan"), "parallel text", null);
+        blog.addComment(id, "first");
+        blog.likePost(id, true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        FanOut fanOut = FanOut.on(pool, 4);
+        try {
+            BlogService parallel = new BlogServiceImpl(postRepository, commentRepository, cache, likes, images,
+                    imageCollector, uploader, searchRepository, tagRepository, fanOut);
+            cache.invalidateAll();
+
+            Post post = parallel.getPost(id).orElseThrow();
+            assertThat(post.getComments()).extracting(Comment::getText).containsExactly("first");
+            assertThat(post.getLikesCount()).isEqualTo(1); // незаписанный лайк подмешан
+
+            FeedView feed = parallel.findFeedView("fan", 1, 10, 5);
+            assertThat(feed.getPosts()).extracting(PostSummary::getId).containsExactly(id);
+            assertThat(feed.getPosts().get(0).getLikesCount()).isEqualTo(1);
+            assertThat(feed.getTotal()).isEqualTo(1);
+            assertThat(feed.getPopularTags()).extracting(TagCount::getTag).contains("fan");
+
+            FeedView found = parallel.searchView("parallel", 1, 10, 5);
+            assertThat(found.getPosts()).extracting(PostSummary::getId).containsExactly(id);
+            assertThat(found.getTotal()).isEqualTo(1);
+            assertThat(fanOut.getForked()).isPositive();
+
+            // упавшая задача прерывает соседнюю и пробрасывается из join(), когда та закончилась;
+            // разрешения max-forks возвращаются только после этого
+            AtomicBoolean sleeperDone = new AtomicBoolean();
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> {
+                try (var scope = fanOut.open()) {
+                    scope.fork(() -> {
+                        try {
+                            Thread.sleep(10_000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            sleeperDone.set(true);
+                        }
+                        return null;
+                    });
+                    scope.fork(() -> {
+                        throw new IllegalArgumentException("boom");
+                    });
+                    scope.join();
+                }
+            }).isInstanceOf(IllegalArgumentException.class).hasMessage("boom");
+            assertThat(System.nanoTime() - start).isLessThan(5_000_000_000L);
+            assertThat(sleeperDone).isTrue();
+            assertThat(fanOut.getFreeForks()).isEqualTo(4);
+
+            // close() без join(): уже начатая задача прерывается и дорабатывает до выхода из блока
+            AtomicBoolean abandonedDone = new AtomicBoolean();
+            CountDownLatch started = new CountDownLatch(1);
+            try (var scope = fanOut.open()) {
+                scope.fork(() -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        abandonedDone.set(true);
+                    }
+                    return null;
+                });
+                assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            assertThat(abandonedDone).isTrue();
+            assertThat(fanOut.getFreeForks()).isEqualTo(4);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void oversized_or_non_image_upload_is_rejected_and_leaves_nothing_behind() {
+        byte[] huge = new byte[5000];
+        huge[0] = (byte) 0xFF; // начинается как JPEG — отсекает только размер
+        huge[1] = (byte) 0xD8;
+        huge[2] = (byte) 0xFF;
+        assertThatThrownBy(() -> blog.createPost("Huge", List.of(), "t", ImageUpload.of(huge)))
+                .isInstanceOf(InvalidImageException.class);
+        assertThatThrownBy(() -> blog.createPost("Fake", List.of(), "t",
+                new ImageUpload(new ByteArrayResource("not a picture".getBytes()), "image/jpeg")))
+                .isInstanceOf(InvalidImageException.class);
+        assertThatThrownBy(() -> blog.createPost("Text", List.of(), "t",
+                new ImageUpload(new ByteArrayResource(new byte[]{1}), "text/plain")))
+                .isInstanceOf(InvalidImageException.class);
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM posts", Integer.class)).isZero();
+        assertThat(images.hashes()).isEmpty();
+        assertThat(Path.of("target/test-images/service/tmp")).isEmptyDirectory();
+    }
+
+    // картинка поста так, как её отдаёт /images/{id}
+    private byte[] imageBytes(long postId) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(blog.writeImage(blog.findImageMeta(postId).orElseThrow(), out)).isTrue();
+        return out.toByteArray();
+    }
+
+    private static byte[] image(String format, int width, int height) throws IOException {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        img.setRGB(0, 0, width * 31 + height); // разные размеры — разные байты
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, format, out);
+        return out.toByteArray();
+    }
+
+    // только заголовок WebP (VP8X) — для проверки разбора размеров декодер не нужен
+    private static byte[] webpHeader(int width, int height) {
+        ByteBuffer b = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+        b.put("RIFF".getBytes()).putInt(22).put("WEBP".getBytes()).put("VP8X".getBytes()).putInt(10).putInt(0);
+        b.put((byte) (width - 1)).put((byte) ((width - 1) >> 8)).put((byte) ((width - 1) >> 16));
+        b.put((byte) (height - 1)).put((byte) ((height - 1) >> 8)).put((byte) ((height - 1) >> 16));
+        return b.array();
+    }
+}